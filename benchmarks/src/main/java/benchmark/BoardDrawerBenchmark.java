@@ -0,0 +1,46 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessGame;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import ui.BoardDrawer;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the board for the client, with and without highlighted moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardDrawerBenchmark {
+
+    @Param({"WHITE", "BLACK"})
+    public String perspective;
+
+    private ChessBoard board;
+    private Collection<ChessMove> highlights;
+
+    @Setup
+    public void setup() {
+        ChessGame game = Positions.load("middlegame");
+        board = game.getBoard();
+        highlights = game.validMoves(new ChessPosition(3, 6));
+    }
+
+    @Benchmark
+    public String draw() {
+        return BoardDrawer.draw(perspective, board);
+    }
+
+    @Benchmark
+    public String drawWithHighlights() {
+        return BoardDrawer.draw(perspective, board, highlights);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal move generation and check, checkmate and stalemate detection for the
+ * side to move.
+ * <p>
+ * ChessGame keeps the last status it computed until the position changes, so
+ * the checkmate and stalemate benchmarks play and take back a move first to
+ * time the status computation rather than the cache. {@link #doUndoMove} times
+ * that move alone, and {@link #cachedStatus} times a cache hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStatusBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private ChessGame game;
+    private List<ChessPosition> ownPieces;
+    private final int[] moveBuffer = new int[Move.MAX_MOVES];
+
+    /* Played and taken back to clear the cached status */
+    private int resetMove;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        ownPieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    ownPieces.add(new ChessPosition(row, col));
+                }
+            }
+        }
+        game.legalMoves(moveBuffer);
+        resetMove = moveBuffer[0];
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition start : ownPieces) {
+            for (ChessMove move : game.validMoves(start)) {
+                blackhole.consume(move);
+            }
+        }
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        return game.legalMoves(moveBuffer);
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        game.doMove(resetMove);
+        game.undoMove();
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        game.doMove(resetMove);
+        game.undoMove();
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public long doUndoMove() {
+        game.doMove(resetMove);
+        game.undoMove();
+        return game.positionKey();
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus cachedStatus() {
+        return game.getStatus();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pseudo-legal move generation for a single piece of each type, taken from the
+ * middlegame position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceMovesBenchmark {
+
+    @Param({"KING", "QUEEN", "BISHOP", "KNIGHT", "ROOK", "PAWN"})
+    public ChessPiece.PieceType type;
+
+    private ChessBoard board;
+    private ChessPiece piece;
+    private ChessPosition position;
+
+    @Setup
+    public void setup() {
+        board = Positions.load("middlegame").getBoard();
+        position = switch (type) {
+            case KING -> new ChessPosition(1, 5);
+            case QUEEN -> new ChessPosition(3, 6);
+            case BISHOP -> new ChessPosition(2, 5);
+            case KNIGHT -> new ChessPosition(5, 5);
+            case ROOK -> new ChessPosition(1, 8);
+            case PAWN -> new ChessPosition(2, 7);
+        };
+        piece = board.getPiece(position);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> pieceMoves() {
+        return piece.pieceMoves(board, position);
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+
+/**
+ * Fixed positions shared by the benchmarks, so results are comparable
+ * between runs.
+ */
+public final class Positions {
+
+    /**
+     * Italian game after 1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5, white to move
+     */
+    public static final String OPENING = "r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w - - 4 4";
+
+    /**
+     * Crowded middlegame with pins, checks and captures available
+     */
+    public static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1";
+
+    /**
+     * Rook and pawn endgame
+     */
+    public static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private Positions() {
+    }
+
+    /**
+     * @param name one of opening, middlegame or endgame
+     * @return a new game in that position, white to move
+     */
+    public static ChessGame load(String name) {
+        return Fen.parse(fen(name));
+    }
+
+    /**
+     * @param name one of opening, middlegame or endgame
+     * @return the position as a FEN record
+     */
+    public static String fen(String name) {
+        return switch (name) {
+            case "opening" -> OPENING;
+            case "middlegame" -> MIDDLEGAME;
+            case "endgame" -> ENDGAME;
+            default -> throw new IllegalArgumentException("Unknown position " + name);
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.engine.SearchEngine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazy SMP scaling: time to reach a fixed depth, and nodes searched per second
+ * in a fixed time, for each thread count. Compare scores across the threads
+ * parameter to get the scaling efficiency.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchScalingBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"middlegame"})
+    public String position;
+
+    @Param({"7"})
+    public int depth;
+
+    private ChessGame game;
+    private SearchEngine engine;
+
+    /**
+     * Reports nodes searched as an extra result, normalized to nodes per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class NodeCounter {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = Positions.load(position);
+        engine = new SearchEngine(TranspositionTable.ofMegabytes(16));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        // every search starts cold, as a new position would
+        engine.getTable().clear();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SearchResult timeToDepth() {
+        return engine.search(game, SearchLimits.depth(depth).withThreads(threads));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public SearchResult fixedTime(NodeCounter counter) {
+        SearchResult result = engine.search(game, SearchLimits.time(250).withThreads(threads));
+        counter.nodes += result.nodes();
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of a ChessGame through each form it is stored or sent in. The
+ * codec benchmarks use GameCodec, which is how SqlGameDAO stores games. The
+ * Gson benchmarks build a new Gson for every call, as SqlGameDAO did before
+ * it switched to GameCodec. The FEN benchmarks write and read the same game
+ * as a FEN record for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private final Gson sharedGson = new Gson();
+    private ChessGame game;
+    private String json;
+    private String fen;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        json = sharedGson.toJson(game);
+        fen = Fen.format(game);
+        encoded = GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decode() {
+        return GameCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public ChessGame roundTripCodec() {
+        return GameCodec.decode(GameCodec.encode(game));
+    }
+
+    @Benchmark
+    public String toJson() {
+        return new Gson().toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame fromJson() {
+        return new Gson().fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTrip() {
+        return new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame roundTripSharedGson() {
+        return sharedGson.fromJson(sharedGson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String toFen() {
+        return Fen.format(game);
+    }
+
+    @Benchmark
+    public ChessGame fromFen() {
+        return Fen.parse(fen);
+    }
+
+    @Benchmark
+    public ChessGame roundTripFen() {
+        return Fen.parse(Fen.format(game));
+    }
+}
@@ -5,6 +5,7 @@ import service.*;
 import com.google.gson.Gson;
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class ServerFacade {
@@ -86,6 +87,22 @@ public class ServerFacade {
         return makeRequest("GET", "/game", authToken, null, ListGamesResult.class);
     }
 
+    public ListGamesResult listGames(String authToken, ListGamesRequest request) throws Exception {
+        var query = new StringBuilder();
+        appendParam(query, "after", request.after());
+        appendParam(query, "limit", request.limit());
+        appendParam(query, "status", request.status());
+        appendParam(query, "player", request.player());
+        return makeRequest("GET", "/game" + query, authToken, null, ListGamesResult.class);
+    }
+
+    private static void appendParam(StringBuilder query, String name, String value) {
+        if (value != null) {
+            query.append(query.isEmpty() ? '?' : '&').append(name).append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        }
+    }
+
     public void joinGame(String authToken, JoinGameRequest request) throws Exception {
         makeRequest("PUT", "/game", authToken, request, null);
     }
@@ -71,7 +71,7 @@ public class BoardDrawer {
         
         for (int col = 1; col <= BOARD_SIZE; col++) {
             int actualCol = isWhite ? col : (BOARD_SIZE - col + 1);
-            ChessPosition currentPos = new ChessPosition(row, actualCol);
+            ChessPosition currentPos = ChessPosition.of(row, actualCol);
 
             boolean isHighlight = endPos != null && endPos.contains(currentPos);
             boolean isStart = startPos != null && startPos.equals(currentPos);
@@ -93,6 +93,28 @@ public class ServerFacadeTests {
         assertThrows(Exception.class, () -> facade.listGames("invalid_token"));
     }
 
+    @Test
+    public void listGamesPagedSuccess() throws Exception {
+        var res = facade.register(new RegisterRequest("user", "pass", "email"));
+        facade.createGame(res.authToken(), new CreateGameRequest("game1"));
+        facade.createGame(res.authToken(), new CreateGameRequest("game2"));
+        facade.createGame(res.authToken(), new CreateGameRequest("game3"));
+        var first = facade.listGames(res.authToken(), new ListGamesRequest(null, "2", null, null));
+        assertEquals(2, first.games().size());
+        assertNotNull(first.next());
+        var rest = facade.listGames(res.authToken(),
+                new ListGamesRequest(String.valueOf(first.next()), "2", "open", null));
+        assertEquals(1, rest.games().size());
+        assertNull(rest.next());
+    }
+
+    @Test
+    public void listGamesPagedFailure() throws Exception {
+        var res = facade.register(new RegisterRequest("user", "pass", "email"));
+        assertThrows(Exception.class,
+                () -> facade.listGames(res.authToken(), new ListGamesRequest(null, "0", null, null)));
+    }
+
     @Test
     public void joinGameSuccess() throws Exception {
         var res = facade.register(new RegisterRequest("user", "pass", "email"));
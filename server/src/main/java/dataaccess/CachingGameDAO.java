@@ -0,0 +1,504 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import model.GameData;
+import model.GameSummary;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps recently used games in memory in front of another {@link GameDAO},
+ * writing changes back in the background.
+ * <p>
+ * Reads of a resident game never reach the underlying store. Writes change
+ * the resident copy at once and queue the game to be flushed, so a move costs
+ * no database round trip. A move is only accepted if it follows on from the
+ * resident game, and an update only if it is not behind the resident game, so
+ * the second of two racing writes fails at once, as it would against the
+ * store. A background task flushes every queued game once the oldest change
+ * is {@code flushDelay} old, or as soon as {@code flushBatch} games are
+ * waiting. Each game's queued moves are written with one
+ * {@link GameDAO#addMoves} call. Games are held encoded with {@link GameCodec},
+ * so each read gets its own {@link ChessGame}, as it would from the database.
+ * <p>
+ * The least recently used clean game is evicted when more than
+ * {@code maxGames} are resident, and clean games unused for {@code idleTimeout}
+ * are evicted by the background task. A game stays dirty until the store has
+ * acknowledged its changes, so games with unwritten changes, including those
+ * being written, are never evicted. Listing and clearing flush first, so they
+ * see every change.
+ * <p>
+ * Changes are never dropped. A game whose flush fails stays dirty and is
+ * retried as a full write of the game, which does not depend on what the move
+ * log already holds, waiting twice as long after each failure up to
+ * {@link #MAX_RETRY_DELAY}. Failures are logged and counted by
+ * {@link #failingGames}. Writes to games that are not resident go straight to
+ * the store. {@link #close} flushes everything and should be called on
+ * shutdown, after which writes are rejected.
+ */
+public class CachingGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * Longest wait between attempts to flush a game whose writes keep failing
+     */
+    public static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+
+    private static final System.Logger DEFAULT_LOGGER = System.getLogger(CachingGameDAO.class.getName());
+
+    /*
+     * A resident game and the changes to it not yet acknowledged by the store.
+     * A pending update writes the whole game, which already includes every
+     * pending move, so the moves are only appended when there is no update.
+     * The moves are those made since the last update or acknowledged flush.
+     */
+    private static final class Entry {
+        String whiteUsername;
+        String blackUsername;
+        String gameName;
+        byte[] state;
+        int ply;
+        List<ChessMove> moves = new ArrayList<>();
+        boolean updated;
+        long updates;
+        int failures;
+        long retryAt;
+        long lastUsed;
+
+        boolean dirty() {
+            return updated || !moves.isEmpty();
+        }
+    }
+
+    /*
+     * What one flush writes for a game, copied from its entry
+     */
+    private record Pending(int gameID, Entry entry, GameData game, List<ChessMove> moves, boolean updated,
+                           long updates) {
+    }
+
+    private final GameDAO delegate;
+    private final int maxGames;
+    private final Duration flushDelay;
+    private final int flushBatch;
+    private final Duration idleTimeout;
+    private final System.Logger logger;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* Held for a whole flush, so one game's changes are always written in order */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+
+    /* In access order, least recently used first */
+    private final LinkedHashMap<Integer, Entry> games = new LinkedHashMap<>(16, 0.75f, true);
+
+    /* Queued games in the order they were queued, so flushing does not count as using them */
+    private final LinkedHashMap<Integer, Entry> dirty = new LinkedHashMap<>();
+    private boolean closed;
+
+    /**
+     * @param delegate    the store games are read from and flushed to
+     * @param maxGames    most games kept in memory, unless more have unflushed
+     *                    changes
+     * @param flushDelay  longest a change waits before it is flushed
+     * @param flushBatch  number of changed games that triggers a flush without
+     *                    waiting for the delay
+     * @param idleTimeout how long an unused game stays in memory
+     */
+    public CachingGameDAO(GameDAO delegate, int maxGames, Duration flushDelay, int flushBatch, Duration idleTimeout) {
+        this(delegate, maxGames, flushDelay, flushBatch, idleTimeout, DEFAULT_LOGGER);
+    }
+
+    /*
+     * As above, reporting flush failures to the given logger
+     */
+    CachingGameDAO(GameDAO delegate, int maxGames, Duration flushDelay, int flushBatch, Duration idleTimeout,
+                   System.Logger logger) {
+        if (maxGames < 1 || flushBatch < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one game and flush at least one at a time");
+        }
+        if (flushDelay.isNegative() || flushDelay.isZero() || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Flush delay must be positive and idle timeout cannot be negative");
+        }
+        this.delegate = delegate;
+        this.maxGames = maxGames;
+        this.flushDelay = flushDelay;
+        this.flushBatch = flushBatch;
+        this.idleTimeout = idleTimeout;
+        this.logger = logger;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = flushDelay.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushAndEvict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Caches up to 1000 games, flushing within 200 ms or once 64 games have
+     * changed, and evicting games unused for 10 minutes
+     */
+    public CachingGameDAO(GameDAO delegate) {
+        this(delegate, 1000, Duration.ofMillis(200), 64, Duration.ofMinutes(10));
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        lock.lock();
+        try {
+            Entry entry = games.get(gameID);
+            if (entry != null) {
+                entry.lastUsed = System.nanoTime();
+                return toGameData(gameID, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        GameData game = delegate.getGame(gameID);
+        if (game == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            // Another thread may have loaded or changed the game meanwhile
+            Entry entry = games.get(gameID);
+            if (entry == null) {
+                entry = new Entry();
+                setGame(entry, game);
+                games.put(gameID, entry);
+                evictOverflow();
+            }
+            entry.lastUsed = System.nanoTime();
+            return toGameData(gameID, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        flush();
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        flush();
+        return delegate.listGameSummaries(query);
+    }
+
+    /**
+     * @throws DataAccessException if the resident game has already moved past
+     *                             the position being written
+     */
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        lock.lock();
+        try {
+            checkOpen();
+            Entry entry = games.get(game.gameID());
+            if (entry != null) {
+                int ply = SqlGameDAO.ply(game.game());
+                if (ply < entry.ply) {
+                    throw new DataAccessException("Error: game " + game.gameID() + " is at ply " + entry.ply
+                            + ", so an update at ply " + ply + " is out of date");
+                }
+                setGame(entry, game);
+                entry.updated = true;
+                entry.updates++;
+                entry.moves = new ArrayList<>();
+                markDirty(game.gameID(), entry);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Not resident, and possibly not a game at all, so let the store decide
+        delegate.updateGame(game);
+    }
+
+    /**
+     * @throws DataAccessException if the resident game has already moved past
+     *                             the position the move was made from
+     */
+    @Override
+    public void addMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        addMoves(gameID, List.of(move), game);
+    }
+
+    /**
+     * @throws DataAccessException if the resident game has already moved past
+     *                             the position the moves were made from
+     */
+    @Override
+    public void addMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException {
+        lock.lock();
+        try {
+            checkOpen();
+            Entry entry = games.get(gameID);
+            if (entry != null) {
+                int ply = SqlGameDAO.ply(game);
+                if (ply != entry.ply + moves.size()) {
+                    throw new DataAccessException("Error: game " + gameID + " is at ply " + entry.ply
+                            + ", so moves ending at ply " + ply + " are out of date");
+                }
+                entry.state = GameCodec.encode(game);
+                entry.ply = ply;
+                entry.moves.addAll(moves);
+                markDirty(gameID, entry);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Only clean games are evicted, so writing straight through keeps the changes in order
+        delegate.addMoves(gameID, moves, game);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        flushLock.lock();
+        try {
+            lock.lock();
+            try {
+                games.clear();
+                dirty.clear();
+            } finally {
+                lock.unlock();
+            }
+            delegate.clear();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every queued change to the underlying store now, including those
+     * of games still waiting to retry a failed write
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * @return the number of games held in memory
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return games.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of games whose last flush failed, and whose changes
+     * are held in memory until a retry succeeds
+     */
+    public int failingGames() {
+        lock.lock();
+        try {
+            int failing = 0;
+            for (Entry entry : dirty.values()) {
+                if (entry.failures > 0) {
+                    failing++;
+                }
+            }
+            return failing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background flushes and writes every queued change. Writes made
+     * after this are rejected.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        int failing = failingGames();
+        if (failing > 0) {
+            logger.log(System.Logger.Level.ERROR, "Closed with unwritten changes to " + failing + " games");
+        }
+    }
+
+    /*
+     * Flushes the games not waiting to retry, then evicts clean games unused
+     * for longer than the idle timeout
+     */
+    void flushAndEvict() {
+        flush(false);
+        lock.lock();
+        try {
+            long cutoff = System.nanoTime() - idleTimeout.toNanos();
+            Iterator<Entry> it = games.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (!entry.dirty() && entry.lastUsed - cutoff < 0) {
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(boolean retryNow) {
+        flushLock.lock();
+        try {
+            List<Pending> batch = new ArrayList<>();
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                Iterator<Map.Entry<Integer, Entry>> it = dirty.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Entry> queued = it.next();
+                    Entry entry = queued.getValue();
+                    if (!retryNow && entry.failures > 0 && entry.retryAt - now > 0) {
+                        continue;
+                    }
+                    it.remove();
+                    // The entry keeps its changes, and so stays dirty, until the store acknowledges them
+                    batch.add(new Pending(queued.getKey(), entry, toGameData(queued.getKey(), entry),
+                            List.copyOf(entry.moves), entry.updated, entry.updates));
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (Pending pending : batch) {
+                try {
+                    if (pending.updated()) {
+                        delegate.updateGame(pending.game());
+                    } else {
+                        delegate.addMoves(pending.gameID(), pending.moves(), pending.game().game());
+                    }
+                    acknowledge(pending);
+                } catch (DataAccessException | RuntimeException e) {
+                    retryLater(pending, e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /*
+     * Removes the written changes from the entry, keeping any made since
+     */
+    private void acknowledge(Pending pending) {
+        lock.lock();
+        try {
+            Entry entry = pending.entry();
+            if (entry.failures > 0) {
+                logger.log(System.Logger.Level.INFO, "Flushed game " + pending.gameID() + " after "
+                        + entry.failures + " failed attempts");
+                entry.failures = 0;
+            }
+            // A later update replaced the moves and still has to be written
+            if (entry.updates == pending.updates()) {
+                entry.updated = false;
+                entry.moves.subList(0, pending.moves().size()).clear();
+            }
+            if (entry.dirty()) {
+                dirty.put(pending.gameID(), entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Queues a game whose flush failed to be written in full after a backoff
+     */
+    private void retryLater(Pending pending, Exception e) {
+        lock.lock();
+        try {
+            Entry entry = pending.entry();
+            entry.failures++;
+            entry.updated = true;
+            long delay = flushDelay.toNanos() << Math.min(entry.failures - 1, 20);
+            entry.retryAt = System.nanoTime() + Math.min(delay, MAX_RETRY_DELAY.toNanos());
+            dirty.put(pending.gameID(), entry);
+            if (entry.failures == 1) {
+                logger.log(System.Logger.Level.WARNING, "Failed to flush game " + pending.gameID()
+                        + ", keeping its changes to retry", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("Error: game cache is closed");
+        }
+    }
+
+    private void markDirty(int gameID, Entry entry) {
+        entry.lastUsed = System.nanoTime();
+        dirty.put(gameID, entry);
+        if (dirty.size() >= flushBatch) {
+            flusher.execute(() -> flush(false));
+        }
+    }
+
+    /*
+     * Drops least recently used clean games until at most maxGames are resident
+     */
+    private void evictOverflow() {
+        Iterator<Entry> it = games.values().iterator();
+        while (games.size() > maxGames && it.hasNext()) {
+            if (!it.next().dirty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static void setGame(Entry entry, GameData game) {
+        entry.whiteUsername = game.whiteUsername();
+        entry.blackUsername = game.blackUsername();
+        entry.gameName = game.gameName();
+        entry.state = GameCodec.encode(game.game());
+        entry.ply = SqlGameDAO.ply(game.game());
+    }
+
+    private static GameData toGameData(int gameID, Entry entry) {
+        return new GameData(gameID, entry.whiteUsername, entry.blackUsername, entry.gameName,
+                GameCodec.decode(entry.state));
+    }
+}
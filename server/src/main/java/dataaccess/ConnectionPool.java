@@ -0,0 +1,344 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * {@link #getConnection} lends out an idle connection if there is one, after
+ * checking that it still works, or opens a new one while fewer than the
+ * maximum are open. Otherwise it waits for one to be returned, up to the wait
+ * timeout. Closing a lent connection returns it to the pool, rolling back any
+ * transaction left open, so callers use it exactly like a connection from
+ * {@code DriverManager}. The minimum number of connections is opened when the
+ * pool is created. A background task closes connections that have been idle
+ * longer than the idle timeout, and reopens any needed to keep the minimum.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new connection to the database
+     */
+    @FunctionalInterface
+    public interface Opener {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * @param minSize           connections kept open even when idle
+     * @param maxSize           most connections open at once
+     * @param waitTimeout       how long to wait for a connection when all are in use
+     * @param idleTimeout       how long a connection above the minimum may sit idle
+     * @param validationTimeout how long to wait for a borrowed connection to
+     *                          answer before replacing it
+     */
+    public record Settings(int minSize, int maxSize, Duration waitTimeout, Duration idleTimeout,
+                           Duration validationTimeout) {
+        public Settings {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes must satisfy 0 <= min <= max and max >= 1");
+            }
+            if (waitTimeout.isNegative() || idleTimeout.isNegative() || validationTimeout.isNegative()) {
+                throw new IllegalArgumentException("Pool timeouts cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * @param active  connections lent out or being opened
+     * @param idle    open connections waiting in the pool
+     * @param waiting callers waiting for a connection
+     */
+    public record Metrics(int active, int idle, int waiting) {
+    }
+
+    /*
+     * An idle connection and when it was returned
+     */
+    private record Idle(Connection connection, long returnedAt) {
+    }
+
+    private final Settings settings;
+    private final Opener opener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ScheduledExecutorService maintenance;
+
+    /* Most recently returned first, so the ones at the end are the first to go idle for too long */
+    private final ArrayDeque<Idle> idle = new ArrayDeque<>();
+    private int open;
+    private int waiting;
+    private boolean closed;
+
+    public ConnectionPool(Settings settings, Opener opener) {
+        this.settings = settings;
+        this.opener = opener;
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Open the minimum now rather than at the first maintenance run, half an idle timeout away
+        maintain();
+        long period = Math.max(1, settings.idleTimeout().toMillis() / 2);
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, which goes back to the pool when it is closed
+     *
+     * @return an open connection
+     * @throws SQLTimeoutException if none became free within the wait timeout
+     * @throws SQLException        if the pool is closed or a new connection
+     *                             could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        long deadline = System.nanoTime() + settings.waitTimeout().toNanos();
+        while (true) {
+            Idle candidate = null;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && open >= settings.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("Timed out after " + settings.waitTimeout().toMillis()
+                                + " ms waiting for one of " + settings.maxSize() + " database connections");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    open++;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (candidate == null) {
+                return lend(openConnection());
+            }
+            if (isValid(candidate.connection())) {
+                return lend(candidate.connection());
+            }
+            discard(candidate.connection());
+        }
+    }
+
+    /**
+     * @return a snapshot of how many connections are in use, idle and waited for
+     */
+    public Metrics metrics() {
+        lock.lock();
+        try {
+            return new Metrics(open - idle.size(), idle.size(), waiting);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the idle connections and stops lending new ones. Connections
+     * still lent out are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        List<Idle> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            open -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Idle connection : toClose) {
+            closeQuietly(connection.connection());
+        }
+    }
+
+    /*
+     * Closes connections idle past the timeout, then opens new ones if fewer
+     * than the minimum are open
+     */
+    void maintain() {
+        List<Connection> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            long cutoff = System.nanoTime() - settings.idleTimeout().toNanos();
+            while (open > settings.minSize() && !idle.isEmpty() && idle.peekLast().returnedAt() - cutoff < 0) {
+                expired.add(idle.pollLast().connection());
+                open--;
+            }
+            missing = closed ? 0 : Math.max(0, settings.minSize() - open);
+            open += missing;
+        } finally {
+            lock.unlock();
+        }
+        for (Connection connection : expired) {
+            closeQuietly(connection);
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                giveBack(openConnection());
+            } catch (SQLException e) {
+                // The next borrow will try again and report the failure
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        try {
+            return opener.open();
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                open--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid((int) Math.max(1, settings.validationTimeout().toSeconds()));
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease(connection));
+    }
+
+    private void giveBack(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                discard(connection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        boolean accepted = false;
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(new Idle(connection, System.nanoTime()));
+                available.signal();
+                accepted = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!accepted) {
+            discard(connection);
+        }
+    }
+
+    private void discard(Connection connection) {
+        lock.lock();
+        try {
+            open--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(connection);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Nothing more to do with a connection that will not close
+        }
+    }
+
+    /*
+     * The connection handed to a borrower. Closing it returns the real
+     * connection to the pool, after which the borrower can no longer use it.
+     */
+    private final class Lease implements InvocationHandler {
+        private final Connection connection;
+        private boolean returned;
+
+        Lease(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(connection);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + connection;
+                }
+                default -> {
+                }
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package dataaccess;
 
 import java.io.InputStream;
 import java.sql.*;
+import java.time.Duration;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -9,6 +10,10 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+
+    /* Opened on first use, since the database may not exist until configureDatabase creates it */
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -25,6 +30,7 @@ public class DatabaseManager {
                     preparedStatement.executeUpdate();
                 }
             }
+            SqlGameDAO.migrate(conn);
         } catch (SQLException ex) {
             throw new DataAccessException("failed to configure database", ex);
         }
@@ -50,7 +56,18 @@ public class DatabaseManager {
                 whiteUsername VARCHAR(255),
                 blackUsername VARCHAR(255),
                 gameName VARCHAR(255) NOT NULL,
-                json TEXT NOT NULL
+                state VARBINARY(64) NOT NULL,
+                snapshotPly INT NOT NULL DEFAULT 0,
+                finished BOOLEAN NOT NULL DEFAULT FALSE
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS game_move (
+                gameID INT NOT NULL,
+                ply INT NOT NULL,
+                move SMALLINT NOT NULL,
+                PRIMARY KEY (gameID, ply),
+                FOREIGN KEY (gameID) REFERENCES game (gameID) ON DELETE CASCADE
             )
             """
     };
@@ -69,10 +86,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the connection pool, with the
+     * catalog set based upon the properties specified in db.properties.
+     * Connections to the database should be short-lived, and you must close the
+     * connection when you are done with it, which returns it to the pool. The
+     * easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -83,15 +101,42 @@ public class DatabaseManager {
     static Connection getConnection() throws DataAccessException {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool().getConnection();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
-    private static void loadPropertiesFromResources() {
+    /**
+     * @return how many pooled connections are in use, idle and waited for
+     */
+    public static ConnectionPool.Metrics poolMetrics() {
+        return pool().metrics();
+    }
+
+    /**
+     * Closes the connection pool. A new one is opened the next time a
+     * connection is needed.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(poolSettings, () -> {
+                var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+                conn.setCatalog(databaseName);
+                return conn;
+            });
+        }
+        return pool;
+    }
+
+    static void loadPropertiesFromResources() {
         try (var propStream = DatabaseManager.class.getClassLoader().getResourceAsStream("db.properties")) {
             InputStream stream = propStream;
             if (stream == null) {
@@ -108,7 +153,12 @@ public class DatabaseManager {
         }
     }
 
-    private static void loadProperties(Properties props) {
+    /*
+     * Closes the pool as well, so no connection to the old database is lent
+     * out once the settings have changed
+     */
+    static synchronized void loadProperties(Properties props) {
+        closePool();
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
         dbPassword = props.getProperty("db.password");
@@ -116,5 +166,12 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.minSize", "1")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Duration.ofMillis(Long.parseLong(props.getProperty("db.pool.waitTimeoutMillis", "5000"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("db.pool.idleTimeoutSeconds", "300"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("db.pool.validationTimeoutSeconds", "2"))));
     }
 }
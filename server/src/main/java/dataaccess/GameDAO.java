@@ -1,12 +1,49 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.GameData;
+import model.GameSummary;
 import java.util.Collection;
+import java.util.List;
 
 public interface GameDAO {
     int createGame(String gameName) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
     Collection<GameData> listGames() throws DataAccessException;
+
+    /**
+     * @param query which games to list
+     * @return the matching games' players, names and statuses in ID order,
+     * without loading any boards
+     */
+    List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException;
+
+    /**
+     * Replaces a game's players, name and position
+     *
+     * @param game the game as it should now be stored
+     * @throws DataAccessException if moves past the game's position have been
+     *                             recorded since it was read
+     */
     void updateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Records a move played in a game, leaving the players and name as they are
+     *
+     * @param gameID the game the move was played in
+     * @param move   the move
+     * @param game   the game after the move
+     */
+    void addMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException;
+
+    /**
+     * Records several moves played in a row in a game, all or none of them
+     *
+     * @param gameID the game the moves were played in
+     * @param moves  the moves, in the order they were played
+     * @param game   the game after the last move
+     */
+    void addMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException;
     void clear() throws DataAccessException;
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package dataaccess;
+
+import model.GameSummary;
+
+/**
+ * Selects a page of game summaries, in ID order
+ *
+ * @param after  only games with a greater ID are returned, so 0 starts at the
+ *               first game and the last ID of one page starts the next
+ * @param limit  most games to return
+ * @param status only games with this status, or null for any
+ * @param player only games this user plays in, or null for any
+ */
+public record GameQuery(int after, int limit, GameSummary.Status status, String player) {
+
+    /**
+     * Every game
+     */
+    public static final GameQuery ALL = new GameQuery(0, Integer.MAX_VALUE, null, null);
+
+    public GameQuery {
+        if (after < 0 || limit < 1) {
+            throw new IllegalArgumentException("Page must start at an ID of 0 or more and hold at least one game");
+        }
+    }
+
+    /**
+     * @return true if the game passes this query's filters, whatever its ID
+     */
+    public boolean matches(GameSummary game) {
+        return (status == null || game.status() == status)
+                && (player == null || player.equals(game.whiteUsername()) || player.equals(game.blackUsername()));
+    }
+}
@@ -1,12 +1,16 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
 import chess.ChessGame;
+import chess.ChessMove;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
 
 public class MemoryGameDAO implements GameDAO {
-    private final HashMap<Integer, GameData> games = new HashMap<>();
+    private final TreeMap<Integer, GameData> games = new TreeMap<>();
     private int nextID = 1;
 
     @Override
@@ -28,10 +32,42 @@ public class MemoryGameDAO implements GameDAO {
     }
 
     @Override
-    public void updateGame(GameData game) {
+    public List<GameSummary> listGameSummaries(GameQuery query) {
+        List<GameSummary> summaries = new ArrayList<>();
+        for (GameData game : games.tailMap(query.after(), false).values()) {
+            GameSummary summary = GameSummary.of(game);
+            if (query.matches(summary)) {
+                summaries.add(summary);
+                if (summaries.size() == query.limit()) {
+                    break;
+                }
+            }
+        }
+        return summaries;
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        GameData stored = games.get(game.gameID());
+        if (stored != null && SqlGameDAO.ply(stored.game()) > SqlGameDAO.ply(game.game())) {
+            throw new DataAccessException("Error: game " + game.gameID() + " has moves past the update");
+        }
         games.put(game.gameID(), game);
     }
 
+    @Override
+    public void addMove(int gameID, ChessMove move, ChessGame game) {
+        GameData data = games.get(gameID);
+        if (data != null) {
+            games.put(gameID, new GameData(gameID, data.whiteUsername(), data.blackUsername(), data.gameName(), game));
+        }
+    }
+
+    @Override
+    public void addMoves(int gameID, List<ChessMove> moves, ChessGame game) {
+        addMove(gameID, moves.get(moves.size() - 1), game);
+    }
+
     @Override
     public void clear() {
         games.clear();
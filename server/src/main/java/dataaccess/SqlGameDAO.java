@@ -1,21 +1,140 @@
 package dataaccess;
 
+import chess.Bitboards;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.Move;
 import com.google.gson.Gson;
 import model.GameData;
+import model.GameSummary;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Stores games in MySQL.
+ * <p>
+ * Each game row holds a snapshot of the game, encoded with {@link GameCodec},
+ * and the ply the snapshot was taken at. Moves are appended to the game_move
+ * table as they are played, and the snapshot is only rewritten every
+ * {@code snapshotInterval} plies, so most moves cost one narrow INSERT. A game
+ * is loaded by replaying the moves played since its snapshot. Two moves for the
+ * same game and ply break the table's key, so the second of two racing moves
+ * fails instead of forking the game, and an update from a copy read before a
+ * move was logged fails instead of erasing the move. The finished flag is copied into its own
+ * column so the lobby can list games without reading any snapshots.
+ */
 public class SqlGameDAO implements GameDAO {
 
+    /**
+     * Plies between snapshots unless another interval is given
+     */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    /* Indexes for filtered listing, which need gameID last to page through matches in order */
+    static final String[] INDEXES = {
+            "game_white ON game (whiteUsername, gameID)",
+            "game_black ON game (blackUsername, gameID)",
+            "game_finished ON game (finished, gameID)",
+    };
+
+    /* Only needed to read rows written before games were stored with GameCodec */
+    private static final Gson GSON = new Gson();
+
+    private final int snapshotInterval;
+
+    public SqlGameDAO() {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param snapshotInterval plies between rewrites of a game's snapshot, at
+     *                         least 1
+     */
+    public SqlGameDAO(int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be at least 1");
+        }
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /*
+     * Brings a game table created by an older version up to date
+     */
+    static void migrate(Connection conn) throws SQLException {
+        migrateJsonGames(conn);
+        if (!hasColumn(conn, "snapshotPly")) {
+            try (var ps = conn.prepareStatement("ALTER TABLE game ADD COLUMN snapshotPly INT NOT NULL DEFAULT 0")) {
+                ps.executeUpdate();
+            }
+        }
+        if (!hasColumn(conn, "finished")) {
+            try (var ps = conn.prepareStatement("ALTER TABLE game ADD COLUMN finished BOOLEAN NOT NULL DEFAULT FALSE")) {
+                ps.executeUpdate();
+            }
+            // Only updateGame finishes a game, and it always writes a snapshot, so the snapshots have the flag
+            try (var select = conn.prepareStatement("SELECT gameID, state FROM game");
+                 var update = conn.prepareStatement("UPDATE game SET finished = TRUE WHERE gameID = ?");
+                 var rs = select.executeQuery()) {
+                while (rs.next()) {
+                    if (GameCodec.decode(rs.getBytes("state")).isFinished()) {
+                        update.setInt(1, rs.getInt("gameID"));
+                        update.addBatch();
+                    }
+                }
+                update.executeBatch();
+            }
+        }
+        for (String index : INDEXES) {
+            String name = index.substring(0, index.indexOf(' '));
+            if (!hasIndex(conn, name)) {
+                try (var ps = conn.prepareStatement("CREATE INDEX " + index)) {
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /*
+     * Converts a game table from the old layout, where each game was Gson JSON
+     * in a json TEXT column, to the binary state column. Does nothing if the
+     * table has no json column.
+     */
+    private static void migrateJsonGames(Connection conn) throws SQLException {
+        if (!hasColumn(conn, "json")) {
+            return;
+        }
+        if (!hasColumn(conn, "state")) {
+            try (var ps = conn.prepareStatement("ALTER TABLE game ADD COLUMN state VARBINARY(64)")) {
+                ps.executeUpdate();
+            }
+        }
+        try (var select = conn.prepareStatement("SELECT gameID, json FROM game");
+             var update = conn.prepareStatement("UPDATE game SET state = ? WHERE gameID = ?");
+             var rs = select.executeQuery()) {
+            while (rs.next()) {
+                update.setBytes(1, GameCodec.encode(GSON.fromJson(rs.getString("json"), ChessGame.class)));
+                update.setInt(2, rs.getInt("gameID"));
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE game MODIFY state VARBINARY(64) NOT NULL, DROP COLUMN json")) {
+            ps.executeUpdate();
+        }
+    }
+
     @Override
     public int createGame(String gameName) throws DataAccessException {
-        String statement = "INSERT INTO game (gameName, json) VALUES (?, ?)";
+        String statement = "INSERT INTO game (gameName, state, snapshotPly) VALUES (?, ?, 0)";
         try (var conn = DatabaseManager.getConnection()) {
             try (var ps = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
                 ps.setString(1, gameName);
-                ps.setString(2, new Gson().toJson(new ChessGame()));
+                ps.setBytes(2, GameCodec.encode(new ChessGame()));
                 ps.executeUpdate();
                 try (var rs = ps.getGeneratedKeys()) {
                     if (rs.next()) {
@@ -31,42 +150,118 @@ public class SqlGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, json FROM game WHERE gameID = ?";
+        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, state, snapshotPly FROM game WHERE gameID = ?";
+        String movesStatement = "SELECT move FROM game_move WHERE gameID = ? AND ply > ? ORDER BY ply";
         try (var conn = DatabaseManager.getConnection()) {
+            GameData game = null;
+            int snapshotPly = 0;
             try (var ps = conn.prepareStatement(statement)) {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return new GameData(
+                        game = new GameData(
                                 rs.getInt("gameID"),
                                 rs.getString("whiteUsername"),
                                 rs.getString("blackUsername"),
                                 rs.getString("gameName"),
-                                new Gson().fromJson(rs.getString("json"), ChessGame.class)
+                                decode(rs.getBytes("state"))
                         );
+                        snapshotPly = rs.getInt("snapshotPly");
+                    }
+                }
+            }
+            if (game == null) {
+                return null;
+            }
+            try (var ps = conn.prepareStatement(movesStatement)) {
+                ps.setInt(1, gameID);
+                ps.setInt(2, snapshotPly);
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        replay(game.game(), rs.getInt("move"));
                     }
                 }
             }
+            return game;
         } catch (SQLException e) {
             throw new DataAccessException("Error: " + e.getMessage());
         }
-        return null;
     }
 
     @Override
     public Collection<GameData> listGames() throws DataAccessException {
-        Collection<GameData> games = new ArrayList<>();
-        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, json FROM game";
+        Map<Integer, GameData> games = new HashMap<>();
+        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, state FROM game";
+        String movesStatement = """
+                SELECT m.gameID, m.move FROM game_move m JOIN game g ON m.gameID = g.gameID
+                WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply
+                """;
         try (var conn = DatabaseManager.getConnection()) {
             try (var ps = conn.prepareStatement(statement)) {
                 try (var rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        games.add(new GameData(
+                        games.put(rs.getInt("gameID"), new GameData(
                                 rs.getInt("gameID"),
                                 rs.getString("whiteUsername"),
                                 rs.getString("blackUsername"),
                                 rs.getString("gameName"),
-                                new Gson().fromJson(rs.getString("json"), ChessGame.class)
+                                decode(rs.getBytes("state"))
+                        ));
+                    }
+                }
+            }
+            try (var ps = conn.prepareStatement(movesStatement)) {
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        GameData game = games.get(rs.getInt("gameID"));
+                        if (game != null) {
+                            replay(game.game(), rs.getInt("move"));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: " + e.getMessage());
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        List<GameSummary> games = new ArrayList<>();
+        String select = "SELECT gameID, whiteUsername, blackUsername, gameName, finished FROM game WHERE gameID > ?"
+                + statusCondition(query.status());
+        String statement;
+        if (query.player() == null) {
+            statement = select + " ORDER BY gameID LIMIT ?";
+        } else {
+            // One branch per seat, so each walks its own index in ID order
+            statement = "(" + select + " AND whiteUsername = ? ORDER BY gameID LIMIT ?) UNION ("
+                    + select + " AND blackUsername = ? ORDER BY gameID LIMIT ?) ORDER BY gameID LIMIT ?";
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(statement)) {
+                ps.setInt(1, query.after());
+                if (query.player() == null) {
+                    ps.setInt(2, query.limit());
+                } else {
+                    ps.setString(2, query.player());
+                    ps.setInt(3, query.limit());
+                    ps.setInt(4, query.after());
+                    ps.setString(5, query.player());
+                    ps.setInt(6, query.limit());
+                    ps.setInt(7, query.limit());
+                }
+                try (var rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String whiteUsername = rs.getString("whiteUsername");
+                        String blackUsername = rs.getString("blackUsername");
+                        games.add(new GameSummary(
+                                rs.getInt("gameID"),
+                                whiteUsername,
+                                blackUsername,
+                                rs.getString("gameName"),
+                                GameSummary.Status.of(whiteUsername, blackUsername, rs.getBoolean("finished"))
                         ));
                     }
                 }
@@ -77,17 +272,47 @@ public class SqlGameDAO implements GameDAO {
         return games;
     }
 
+    /**
+     * Rewrites the game's snapshot and players. The game row is locked first,
+     * which also holds off moves being logged for it, so a move logged after
+     * the game was read is never overwritten.
+     *
+     * @throws DataAccessException if moves past the game's position have been
+     *                             logged since it was read
+     */
     @Override
     public void updateGame(GameData game) throws DataAccessException {
-        String statement = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ?, json = ? WHERE gameID = ?";
+        String statement = """
+                UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ?, state = ?, snapshotPly = ?,
+                finished = ? WHERE gameID = ?
+                """;
+        String movesStatement = "DELETE FROM game_move WHERE gameID = ? AND ply > ?";
+        int ply = ply(game.game());
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement(statement)) {
+            conn.setAutoCommit(false);
+            try (var ps = conn.prepareStatement(statement);
+                 var moves = conn.prepareStatement(movesStatement)) {
+                int stored = storedPly(conn, game.gameID());
+                if (stored > ply) {
+                    conn.rollback();
+                    throw new DataAccessException("Error: game " + game.gameID() + " is at ply " + stored
+                            + ", so an update at ply " + ply + " is out of date");
+                }
                 ps.setString(1, game.whiteUsername());
                 ps.setString(2, game.blackUsername());
                 ps.setString(3, game.gameName());
-                ps.setString(4, new Gson().toJson(game.game()));
-                ps.setInt(5, game.gameID());
+                ps.setBytes(4, GameCodec.encode(game.game()));
+                ps.setInt(5, ply);
+                ps.setBoolean(6, game.game().isFinished());
+                ps.setInt(7, game.gameID());
                 ps.executeUpdate();
+                moves.setInt(1, game.gameID());
+                moves.setInt(2, ply);
+                moves.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             throw new DataAccessException("Error: " + e.getMessage());
@@ -95,14 +320,149 @@ public class SqlGameDAO implements GameDAO {
     }
 
     @Override
-    public void clear() throws DataAccessException {
-        String statement = "DELETE FROM game";
+    public void addMove(int gameID, ChessMove move, ChessGame game) throws DataAccessException {
+        addMoves(gameID, List.of(move), game);
+    }
+
+    /**
+     * Inserts the moves as one batch. If they reach a multiple of the snapshot
+     * interval, the snapshot is rewritten in the same transaction.
+     */
+    @Override
+    public void addMoves(int gameID, List<ChessMove> moves, ChessGame game) throws DataAccessException {
+        String statement = "INSERT INTO game_move (gameID, ply, move) VALUES (?, ?, ?)";
+        String snapshotStatement = "UPDATE game SET state = ?, snapshotPly = ? WHERE gameID = ?";
+        int ply = ply(game);
+        int first = ply - moves.size() + 1;
+        boolean snapshot = ply / snapshotInterval != (first - 1) / snapshotInterval;
         try (var conn = DatabaseManager.getConnection()) {
+            if (moves.size() == 1 && !snapshot) {
+                try (var ps = conn.prepareStatement(statement)) {
+                    setMove(ps, gameID, ply, moves.get(0));
+                    ps.executeUpdate();
+                }
+                return;
+            }
+            conn.setAutoCommit(false);
             try (var ps = conn.prepareStatement(statement)) {
+                for (int i = 0; i < moves.size(); i++) {
+                    setMove(ps, gameID, first + i, moves.get(i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                if (snapshot) {
+                    try (var update = conn.prepareStatement(snapshotStatement)) {
+                        update.setBytes(1, GameCodec.encode(game));
+                        update.setInt(2, ply);
+                        update.setInt(3, gameID);
+                        update.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement("DELETE FROM game_move")) {
+                ps.executeUpdate();
+            }
+            try (var ps = conn.prepareStatement("DELETE FROM game")) {
                 ps.executeUpdate();
             }
         } catch (SQLException e) {
             throw new DataAccessException("Error: " + e.getMessage());
         }
     }
+
+    /*
+     * Locks the game's row and returns the ply of its latest snapshot or
+     * logged move, or -1 if there is no such game
+     */
+    private static int storedPly(Connection conn, int gameID) throws SQLException {
+        int ply;
+        try (var ps = conn.prepareStatement("SELECT snapshotPly FROM game WHERE gameID = ? FOR UPDATE")) {
+            ps.setInt(1, gameID);
+            try (var rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                ply = rs.getInt("snapshotPly");
+            }
+        }
+        try (var ps = conn.prepareStatement("SELECT MAX(ply) AS ply FROM game_move WHERE gameID = ?")) {
+            ps.setInt(1, gameID);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    ply = Math.max(ply, rs.getInt("ply"));
+                }
+            }
+        }
+        return ply;
+    }
+
+    private static void setMove(PreparedStatement ps, int gameID, int ply, ChessMove move) throws SQLException {
+        ps.setInt(1, gameID);
+        ps.setInt(2, ply);
+        ps.setInt(3, Move.encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0));
+    }
+
+    private static void replay(ChessGame game, int move) throws DataAccessException {
+        if (game.getBoard().getPiece(Move.from(move)) == null) {
+            throw new DataAccessException("Error: logged move " + move + " starts on an empty square");
+        }
+        game.doMove(move);
+    }
+
+    /*
+     * Plies played before the game's current position, counted from the
+     * start of a game that began with white to move at move 1
+     */
+    static int ply(ChessGame game) {
+        return 2 * (game.getFullmoveNumber() - 1) + (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0);
+    }
+
+    private static String statusCondition(GameSummary.Status status) {
+        if (status == null) {
+            return "";
+        }
+        return switch (status) {
+            case WAITING_FOR_PLAYERS -> " AND finished = FALSE AND (whiteUsername IS NULL OR blackUsername IS NULL)";
+            case IN_PROGRESS -> " AND finished = FALSE AND whiteUsername IS NOT NULL AND blackUsername IS NOT NULL";
+            case FINISHED -> " AND finished = TRUE";
+        };
+    }
+
+    private static boolean hasIndex(Connection conn, String index) throws SQLException {
+        try (var indexes = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, "game", false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasColumn(Connection conn, String column) throws SQLException {
+        try (var columns = conn.getMetaData().getColumns(conn.getCatalog(), null, "game", column)) {
+            return columns.next();
+        }
+    }
+
+    private static ChessGame decode(byte[] state) throws DataAccessException {
+        try {
+            return GameCodec.decode(state);
+        } catch (IllegalArgumentException e) {
+            throw new DataAccessException("Error: " + e.getMessage(), e);
+        }
+    }
 }
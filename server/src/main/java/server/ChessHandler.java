@@ -74,9 +74,13 @@ public class ChessHandler {
     public void listGames(Context ctx) {
         try {
             String authToken = ctx.header("authorization");
-            ListGamesResult res = gameService.listGames(authToken);
+            ListGamesRequest req = new ListGamesRequest(ctx.queryParam("after"), ctx.queryParam("limit"),
+                    ctx.queryParam("status"), ctx.queryParam("player"));
+            ListGamesResult res = gameService.listGames(authToken, req);
             ctx.status(200);
             ctx.result(gson.toJson(res));
+        } catch (BadRequestException e) {
+            handleException(ctx, e, 400);
         } catch (UnauthorizedException e) {
             handleException(ctx, e, 401);
         } catch (Exception e) {
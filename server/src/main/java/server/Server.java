@@ -8,7 +8,7 @@ public class Server {
     private final Javalin javalin;
     private final UserDAO userDAO = new SqlUserDAO();
     private final AuthDAO authDAO = new SqlAuthDAO();
-    private final GameDAO gameDAO = new SqlGameDAO();
+    private final CachingGameDAO gameDAO = new CachingGameDAO(new SqlGameDAO());
     private final ChessHandler handler = new ChessHandler(userDAO, authDAO, gameDAO);
     private final WebSocketHandler wsHandler = new WebSocketHandler(userDAO, authDAO, gameDAO);
 
@@ -39,5 +39,7 @@ public class Server {
 
     public void stop() {
         javalin.stop();
+        gameDAO.close();
+        DatabaseManager.closePool();
     }
 }
\ No newline at end of file
@@ -137,7 +137,7 @@ public class WebSocketHandler {
             throw new Exception("Invalid move");
         }
 
-        gameDAO.updateGame(gameData);
+        gameDAO.addMove(gameID, move, game);
 
         websocket.messages.LoadGameMessage loadMessage = new websocket.messages.LoadGameMessage(game);
         sessionManager.broadcast(gameID, loadMessage, null);
@@ -148,16 +148,20 @@ public class WebSocketHandler {
 
         chess.ChessGame.TeamColor opponentColor = (userColor == chess.ChessGame.TeamColor.WHITE) ? 
                 chess.ChessGame.TeamColor.BLACK : chess.ChessGame.TeamColor.WHITE;
-        if (game.isInCheckmate(opponentColor)) {
-            game.setFinished(true);
-            gameDAO.updateGame(gameData);
-            sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage(opponentColor + " is in checkmate. Game over."), null);
-        } else if (game.isInStalemate(opponentColor)) {
-            game.setFinished(true);
-            gameDAO.updateGame(gameData);
-            sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage("Game is in stalemate. Game over."), null);
-        } else if (game.isInCheck(opponentColor)) {
-            sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage(opponentColor + " is in check."), null);
+        switch (game.getStatus(opponentColor)) {
+            case CHECKMATE -> {
+                game.setFinished(true);
+                gameDAO.updateGame(gameData);
+                sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage(opponentColor + " is in checkmate. Game over."), null);
+            }
+            case STALEMATE -> {
+                game.setFinished(true);
+                gameDAO.updateGame(gameData);
+                sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage("Game is in stalemate. Game over."), null);
+            }
+            case CHECK -> sessionManager.broadcast(gameID, new websocket.messages.NotificationMessage(opponentColor + " is in check."), null);
+            case NORMAL -> {
+            }
         }
     }
     private void leave(io.javalin.websocket.WsContext ctx, UserGameCommand command) throws Exception {
@@ -3,9 +3,17 @@ package service;
 import dataaccess.*;
 import model.AuthData;
 import model.GameData;
-import java.util.Collection;
+import model.GameSummary;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GameService {
+
+    /**
+     * Most games one page of GET /game can hold
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
 
@@ -14,12 +22,43 @@ public class GameService {
         this.authDAO = authDAO;
     }
 
-    public ListGamesResult listGames(String authToken) throws UnauthorizedException, DataAccessException {
+    public ListGamesResult listGames(String authToken)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
+        return listGames(authToken, new ListGamesRequest(null, null, null, null));
+    }
+
+    /**
+     * Lists a page of games. Without a limit every matching game is returned
+     * at once.
+     */
+    public ListGamesResult listGames(String authToken, ListGamesRequest req)
+            throws UnauthorizedException, BadRequestException, DataAccessException {
         if (authDAO.getAuth(authToken) == null) {
             throw new UnauthorizedException("Error: unauthorized");
         }
-        Collection<GameData> games = gameDAO.listGames();
-        return new ListGamesResult(games);
+        int after = req.after() == null ? 0 : parseInt(req.after());
+        int limit = req.limit() == null ? Integer.MAX_VALUE : parseInt(req.limit());
+        if (after < 0 || limit < 1 || req.limit() != null && limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Error: bad request");
+        }
+        GameSummary.Status status = null;
+        if (req.status() != null) {
+            status = switch (req.status().toLowerCase()) {
+                case "open" -> GameSummary.Status.WAITING_FOR_PLAYERS;
+                case "in-progress" -> GameSummary.Status.IN_PROGRESS;
+                case "finished" -> GameSummary.Status.FINISHED;
+                default -> throw new BadRequestException("Error: bad request");
+            };
+        }
+
+        // One game past the page shows whether there is another page
+        int fetch = req.limit() == null ? limit : limit + 1;
+        List<GameSummary> games = gameDAO.listGameSummaries(new GameQuery(after, fetch, status, req.player()));
+        if (games.size() <= limit) {
+            return new ListGamesResult(games, null);
+        }
+        List<GameSummary> page = new ArrayList<>(games.subList(0, limit));
+        return new ListGamesResult(page, page.get(limit - 1).gameID());
     }
 
     public CreateGameResult createGame(String authToken, CreateGameRequest req)
@@ -65,4 +104,12 @@ public class GameService {
             throw new BadRequestException("Error: bad request");
         }
     }
+
+    private static int parseInt(String value) throws BadRequestException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Error: bad request");
+        }
+    }
 }
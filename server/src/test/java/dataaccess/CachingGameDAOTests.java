@@ -0,0 +1,358 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+public class CachingGameDAOTests {
+    private CountingGameDAO store;
+    private RecordingLogger logger;
+    private CachingGameDAO cache;
+
+    @BeforeEach
+    public void setup() {
+        store = new CountingGameDAO();
+        logger = new RecordingLogger();
+        // A long delay and large batch, so nothing is flushed unless a test asks
+        cache = new CachingGameDAO(store, 2, Duration.ofHours(1), 100, Duration.ofHours(1), logger);
+    }
+
+    @AfterEach
+    public void close() {
+        cache.close();
+    }
+
+    @Test
+    public void readsAreServedFromMemory() throws DataAccessException {
+        int gameID = cache.createGame("Game");
+        Assertions.assertEquals("Game", cache.getGame(gameID).gameName());
+        Assertions.assertEquals("Game", cache.getGame(gameID).gameName());
+        Assertions.assertEquals(1, store.reads);
+        Assertions.assertNull(cache.getGame(9999));
+        // Each read gets its own game
+        Assertions.assertNotSame(cache.getGame(gameID).game(), cache.getGame(gameID).game());
+    }
+
+    @Test
+    public void movesAreWrittenBehind() throws Exception {
+        int gameID = cache.createGame("Game");
+        ChessGame game = cache.getGame(gameID).game();
+        ChessMove first = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove second = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        game.makeMove(first);
+        cache.addMove(gameID, first, game);
+        game.makeMove(second);
+        cache.addMove(gameID, second, game);
+
+        Assertions.assertEquals(game, cache.getGame(gameID).game());
+        Assertions.assertEquals(new ChessGame(), store.getGame(gameID).game());
+        Assertions.assertTrue(store.moves.isEmpty());
+
+        cache.flush();
+        Assertions.assertEquals(List.of(first, second), store.moves);
+        Assertions.assertEquals(game, store.getGame(gameID).game());
+    }
+
+    @Test
+    public void updateReplacesPendingMoves() throws Exception {
+        int gameID = cache.createGame("Game");
+        GameData data = cache.getGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        data.game().makeMove(move);
+        cache.addMove(gameID, move, data.game());
+        data.game().setFinished(true);
+        cache.updateGame(new GameData(gameID, "white", "black", "Game", data.game()));
+
+        cache.flush();
+        Assertions.assertTrue(store.moves.isEmpty());
+        Assertions.assertEquals(1, store.updates);
+        GameData stored = store.getGame(gameID);
+        Assertions.assertEquals("white", stored.whiteUsername());
+        Assertions.assertTrue(stored.game().isFinished());
+    }
+
+    @Test
+    public void listingFlushesFirst() throws DataAccessException {
+        int gameID = cache.createGame("Game");
+        GameData data = cache.getGame(gameID);
+        cache.updateGame(new GameData(gameID, "white", null, "Game", data.game()));
+        var summaries = cache.listGameSummaries(GameQuery.ALL);
+        Assertions.assertEquals("white", summaries.get(0).whiteUsername());
+    }
+
+    @Test
+    public void leastRecentlyUsedCleanGameIsEvicted() throws DataAccessException {
+        int a = cache.createGame("A");
+        int b = cache.createGame("B");
+        int c = cache.createGame("C");
+        cache.getGame(a);
+        cache.getGame(b);
+        cache.updateGame(new GameData(a, "white", null, "A", cache.getGame(a).game()));
+        cache.getGame(c);
+        // b was the least recently used and a has unflushed changes
+        Assertions.assertEquals(2, cache.size());
+        cache.getGame(a);
+        Assertions.assertEquals(3, store.reads);
+        cache.getGame(b);
+        Assertions.assertEquals(4, store.reads);
+    }
+
+    @Test
+    public void idleGamesAreEvicted() throws Exception {
+        cache.close();
+        cache = new CachingGameDAO(store, 10, Duration.ofHours(1), 100, Duration.ofMillis(10), logger);
+        int gameID = cache.createGame("Game");
+        cache.updateGame(new GameData(gameID, "white", null, "Game", cache.getGame(gameID).game()));
+        Thread.sleep(20);
+        cache.flushAndEvict();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("white", cache.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void writesToMissingGamesGoToTheStore() throws DataAccessException {
+        cache.updateGame(new GameData(9999, "white", "black", "Name", new ChessGame()));
+        Assertions.assertEquals(1, store.updates);
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void flushingDoesNotCountAsUse() throws DataAccessException {
+        int a = cache.createGame("A");
+        int b = cache.createGame("B");
+        int c = cache.createGame("C");
+        cache.updateGame(new GameData(a, "white", null, "A", cache.getGame(a).game()));
+        cache.getGame(b);
+        cache.flush();
+        cache.getGame(c);
+        // a was used before b, so it goes even though it was flushed since
+        Assertions.assertEquals(3, store.reads);
+        cache.getGame(b);
+        Assertions.assertEquals(3, store.reads);
+    }
+
+    @Test
+    public void gamesBeingWrittenAreNotEvicted() throws Exception {
+        int a = cache.createGame("A");
+        int b = cache.createGame("B");
+        int c = cache.createGame("C");
+        ChessGame game = cache.getGame(a).game();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        cache.addMove(a, move, game);
+        // Filling the cache while a's move is being written must not evict a
+        store.duringWrite = () -> {
+            try {
+                cache.getGame(b);
+                cache.getGame(c);
+            } catch (DataAccessException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        store.failures = 1;
+        cache.flush();
+        Assertions.assertEquals(1, cache.failingGames());
+        Assertions.assertEquals(game, cache.getGame(a).game());
+        Assertions.assertEquals(new ChessGame(), store.getGame(a).game());
+    }
+
+    @Test
+    public void failedFlushesAreRetriedUntilTheyWork() throws Exception {
+        int gameID = cache.createGame("Game");
+        ChessGame game = cache.getGame(gameID).game();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        cache.addMove(gameID, move, game);
+
+        store.failures = 10;
+        for (int i = 0; i < 10; i++) {
+            cache.flush();
+        }
+        // Nothing is dropped however often the store fails
+        Assertions.assertEquals(1, cache.failingGames());
+        Assertions.assertEquals(game, cache.getGame(gameID).game());
+        Assertions.assertEquals(1, cache.size());
+
+        // The retry rewrites the whole game rather than appending to the log again
+        cache.flush();
+        Assertions.assertEquals(0, cache.failingGames());
+        Assertions.assertTrue(store.moves.isEmpty());
+        Assertions.assertEquals(1, store.updates);
+        Assertions.assertEquals(game, store.getGame(gameID).game());
+        // One warning when the failures start and one note when they end
+        Assertions.assertEquals(List.of(System.Logger.Level.WARNING, System.Logger.Level.INFO), logger.levels);
+    }
+
+    @Test
+    public void backgroundFlushesBackOff() throws Exception {
+        int gameID = cache.createGame("Game");
+        cache.updateGame(new GameData(gameID, "white", null, "Game", cache.getGame(gameID).game()));
+        store.failures = 1;
+        cache.flushAndEvict();
+        Assertions.assertEquals(1, cache.failingGames());
+        // The retry waits out the delay, which here is an hour
+        cache.flushAndEvict();
+        Assertions.assertEquals(0, store.updates);
+        cache.flush();
+        Assertions.assertEquals(1, store.updates);
+        Assertions.assertEquals("white", store.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    public void movesAreWrittenInOneBatch() throws Exception {
+        int gameID = cache.createGame("Game");
+        ChessGame game = cache.getGame(gameID).game();
+        for (ChessMove move : List.of(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null))) {
+            game.makeMove(move);
+            cache.addMove(gameID, move, game);
+        }
+        cache.flush();
+        Assertions.assertEquals(3, store.moves.size());
+        Assertions.assertEquals(1, store.batches);
+    }
+
+    @Test
+    public void staleMovesAreRejected() throws Exception {
+        int gameID = cache.createGame("Game");
+        ChessGame first = cache.getGame(gameID).game();
+        ChessGame second = cache.getGame(gameID).game();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove d4 = new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null);
+        first.makeMove(e4);
+        second.makeMove(d4);
+        cache.addMove(gameID, e4, first);
+        // Both were made from the starting position, so the second is out of date
+        Assertions.assertThrows(DataAccessException.class, () -> cache.addMove(gameID, d4, second));
+        Assertions.assertEquals(first, cache.getGame(gameID).game());
+        cache.flush();
+        Assertions.assertEquals(List.of(e4), store.moves);
+    }
+
+    @Test
+    public void staleUpdatesAreRejected() throws Exception {
+        int gameID = cache.createGame("Game");
+        GameData stale = cache.getGame(gameID);
+        ChessGame game = cache.getGame(gameID).game();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        cache.addMove(gameID, move, game);
+        // Seating a player from a copy read before the move must not undo the move
+        Assertions.assertThrows(DataAccessException.class,
+                () -> cache.updateGame(new GameData(gameID, "white", null, "Game", stale.game())));
+        Assertions.assertEquals(game, cache.getGame(gameID).game());
+        Assertions.assertNull(cache.getGame(gameID).whiteUsername());
+
+        // So a retried flush writes the game with the move
+        store.failures = 1;
+        cache.flush();
+        cache.flush();
+        Assertions.assertEquals(game, store.getGame(gameID).game());
+
+        cache.updateGame(new GameData(gameID, "white", null, "Game", cache.getGame(gameID).game()));
+        cache.flush();
+        Assertions.assertEquals("white", store.getGame(gameID).whiteUsername());
+        Assertions.assertEquals(game, store.getGame(gameID).game());
+    }
+
+    @Test
+    public void writesAfterCloseAreRejected() throws Exception {
+        int gameID = cache.createGame("Game");
+        ChessGame game = cache.getGame(gameID).game();
+        cache.close();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        Assertions.assertThrows(DataAccessException.class, () -> cache.addMove(gameID, move, game));
+        Assertions.assertThrows(DataAccessException.class,
+                () -> cache.updateGame(new GameData(gameID, "white", null, "Game", game)));
+        Assertions.assertEquals(new ChessGame(), store.getGame(gameID).game());
+    }
+
+    @Test
+    public void closeFlushes() throws Exception {
+        int gameID = cache.createGame("Game");
+        cache.updateGame(new GameData(gameID, "white", null, "Game", cache.getGame(gameID).game()));
+        cache.close();
+        Assertions.assertEquals("white", store.getGame(gameID).whiteUsername());
+    }
+
+    /*
+     * Keeps the levels logged instead of printing them
+     */
+    private static class RecordingLogger implements System.Logger {
+        final List<Level> levels = new ArrayList<>();
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public boolean isLoggable(Level level) {
+            return true;
+        }
+
+        @Override
+        public void log(Level level, ResourceBundle bundle, String msg, Throwable thrown) {
+            levels.add(level);
+        }
+
+        @Override
+        public void log(Level level, ResourceBundle bundle, String format, Object... params) {
+            levels.add(level);
+        }
+    }
+
+    /*
+     * A memory store that counts reads and writes, and can be told to fail or
+     * to do something else in the middle of a write
+     */
+    private static class CountingGameDAO extends MemoryGameDAO {
+        final List<ChessMove> moves = new ArrayList<>();
+        int reads;
+        int updates;
+        int batches;
+        int failures;
+        Runnable duringWrite;
+
+        @Override
+        public GameData getGame(int gameID) {
+            reads++;
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            failIfAsked();
+            updates++;
+            super.updateGame(game);
+        }
+
+        @Override
+        public void addMoves(int gameID, List<ChessMove> moves, ChessGame game) {
+            failIfAsked();
+            batches++;
+            this.moves.addAll(moves);
+            super.addMoves(gameID, moves, game);
+        }
+
+        private void failIfAsked() {
+            if (duringWrite != null) {
+                Runnable write = duringWrite;
+                duringWrite = null;
+                write.run();
+            }
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Store is down");
+            }
+        }
+    }
+}
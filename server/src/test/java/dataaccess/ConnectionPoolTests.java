@@ -0,0 +1,199 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionPoolTests {
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void reusesConnections() throws SQLException {
+        pool = newPool(0, 2, Duration.ofSeconds(1));
+        try (var conn = pool.getConnection()) {
+            Assertions.assertFalse(conn.isClosed());
+            Assertions.assertEquals(new ConnectionPool.Metrics(1, 0, 0), pool.metrics());
+        }
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+        try (var conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+        }
+        Assertions.assertEquals(1, opened.size());
+        Assertions.assertFalse(opened.get(0).closed);
+        // The open transaction was rolled back before the connection was reused
+        Assertions.assertEquals(1, opened.get(0).rollbacks);
+        Assertions.assertTrue(opened.get(0).autoCommit);
+    }
+
+    @Test
+    public void closedLeaseCannotBeUsed() throws SQLException {
+        pool = newPool(0, 2, Duration.ofSeconds(1));
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        Assertions.assertTrue(conn.isClosed());
+        Assertions.assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+    }
+
+    @Test
+    public void invalidConnectionsAreReplaced() throws SQLException {
+        pool = newPool(0, 2, Duration.ofSeconds(1));
+        pool.getConnection().close();
+        opened.get(0).valid = false;
+        try (var conn = pool.getConnection()) {
+            Assertions.assertEquals(2, opened.size());
+            Assertions.assertTrue(opened.get(0).closed);
+        }
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+    }
+
+    @Test
+    public void waitsForAFreeConnection() throws Exception {
+        pool = newPool(0, 1, Duration.ofSeconds(5));
+        Connection first = pool.getConnection();
+        CompletableFuture<Connection> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (pool.metrics().waiting() == 0) {
+            Thread.onSpinWait();
+        }
+        Assertions.assertEquals(new ConnectionPool.Metrics(1, 0, 1), pool.metrics());
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+        Assertions.assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void waitTimesOut() throws SQLException {
+        pool = newPool(0, 1, Duration.ofMillis(50));
+        try (var ignored = pool.getConnection()) {
+            Assertions.assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        }
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+    }
+
+    @Test
+    public void idleConnectionsAreEvicted() throws Exception {
+        pool = newPool(1, 3, Duration.ofSeconds(1), Duration.ofMillis(10));
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+        Thread.sleep(20);
+        pool.maintain();
+        // The minimum of one connection stays open
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+        Assertions.assertEquals(2, opened.stream().filter(conn -> conn.closed).count());
+    }
+
+    @Test
+    public void minimumIsOpenedUpFront() throws SQLException {
+        pool = newPool(2, 3, Duration.ofSeconds(1));
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 2, 0), pool.metrics());
+        try (var conn = pool.getConnection()) {
+            // Borrowing an idle connection does not count as waiting
+            Assertions.assertEquals(new ConnectionPool.Metrics(1, 1, 0), pool.metrics());
+        }
+        Assertions.assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void minimumIsRestoredInBackground() throws SQLException {
+        pool = newPool(2, 3, Duration.ofSeconds(1));
+        opened.get(0).valid = false;
+        opened.get(1).valid = false;
+        pool.getConnection().close();
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 1, 0), pool.metrics());
+        pool.maintain();
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 2, 0), pool.metrics());
+    }
+
+    @Test
+    public void closedPoolRejectsBorrowers() throws SQLException {
+        pool = newPool(0, 2, Duration.ofSeconds(1));
+        Connection conn = pool.getConnection();
+        pool.close();
+        Assertions.assertThrows(SQLException.class, () -> pool.getConnection());
+        conn.close();
+        Assertions.assertTrue(opened.get(0).closed);
+        Assertions.assertEquals(new ConnectionPool.Metrics(0, 0, 0), pool.metrics());
+    }
+
+    @Test
+    public void invalidSettings() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Settings(
+                3, 2, Duration.ZERO, Duration.ZERO, Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Settings(
+                0, 0, Duration.ZERO, Duration.ZERO, Duration.ZERO));
+    }
+
+    private ConnectionPool newPool(int minSize, int maxSize, Duration waitTimeout) {
+        return newPool(minSize, maxSize, waitTimeout, Duration.ofMinutes(10));
+    }
+
+    private ConnectionPool newPool(int minSize, int maxSize, Duration waitTimeout, Duration idleTimeout) {
+        var settings = new ConnectionPool.Settings(minSize, maxSize, waitTimeout, idleTimeout, Duration.ofSeconds(1));
+        return new ConnectionPool(settings, () -> {
+            FakeConnection fake = new FakeConnection();
+            synchronized (opened) {
+                opened.add(fake);
+            }
+            return fake.proxy();
+        });
+    }
+
+    /*
+     * Just enough of a connection for the pool to manage
+     */
+    private static class FakeConnection {
+        volatile boolean closed;
+        volatile boolean valid = true;
+        volatile boolean autoCommit = true;
+        volatile int rollbacks;
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid && !closed;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "toString" -> "FakeConnection";
+                        default -> null;
+                    });
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.UUID;
+
+public class DatabaseManagerTests {
+
+    @BeforeAll
+    public static void setup() throws DataAccessException {
+        DatabaseManager.configureDatabase();
+    }
+
+    @AfterEach
+    public void restore() {
+        DatabaseManager.loadPropertiesFromResources();
+    }
+
+    @Test
+    public void reloadingPropertiesReplacesThePool() throws Exception {
+        Connection borrowed = DatabaseManager.getConnection();
+        DatabaseManager.getConnection().close();
+
+        Properties unreachable = new Properties();
+        unreachable.setProperty("db.name", UUID.randomUUID().toString());
+        unreachable.setProperty("db.user", UUID.randomUUID().toString());
+        unreachable.setProperty("db.password", UUID.randomUUID().toString());
+        unreachable.setProperty("db.host", "localhost");
+        unreachable.setProperty("db.port", "100000");
+        DatabaseManager.loadProperties(unreachable);
+
+        // The idle connection to the old database is not lent out again
+        Assertions.assertThrows(DataAccessException.class, DatabaseManager::getConnection);
+        // One still borrowed can be finished with, and is closed rather than pooled
+        borrowed.close();
+        Assertions.assertThrows(DataAccessException.class, DatabaseManager::getConnection);
+
+        DatabaseManager.loadPropertiesFromResources();
+        try (var conn = DatabaseManager.getConnection()) {
+            Assertions.assertTrue(conn.isValid(1));
+        }
+    }
+}
@@ -2,8 +2,11 @@ package dataaccess;
 
 import chess.ChessGame;
 import model.GameData;
+import model.GameSummary;
 import org.junit.jupiter.api.*;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 
 public class GameDAOTests {
     private static GameDAO gameDAO;
@@ -64,6 +67,58 @@ public class GameDAOTests {
         Assertions.assertTrue(games.isEmpty());
     }
 
+    @Test
+    public void listGameSummariesPositive() throws DataAccessException {
+        int open = gameDAO.createGame("Open");
+        int playing = gameDAO.createGame("Playing");
+        int finished = gameDAO.createGame("Finished");
+        gameDAO.updateGame(new GameData(playing, "white", "black", "Playing", new ChessGame()));
+        ChessGame over = new ChessGame();
+        over.setFinished(true);
+        gameDAO.updateGame(new GameData(finished, "white", null, "Finished", over));
+
+        var summaries = new HashMap<Integer, GameSummary>();
+        for (GameSummary summary : gameDAO.listGameSummaries(GameQuery.ALL)) {
+            summaries.put(summary.gameID(), summary);
+        }
+        Assertions.assertEquals(3, summaries.size());
+        Assertions.assertEquals(new GameSummary(open, null, null, "Open",
+                GameSummary.Status.WAITING_FOR_PLAYERS), summaries.get(open));
+        Assertions.assertEquals(GameSummary.Status.IN_PROGRESS, summaries.get(playing).status());
+        Assertions.assertEquals(GameSummary.Status.FINISHED, summaries.get(finished).status());
+    }
+
+    @Test
+    public void listGameSummariesPaged() throws DataAccessException {
+        int[] ids = new int[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = gameDAO.createGame("Game " + i);
+        }
+        gameDAO.updateGame(new GameData(ids[1], "alice", null, "Game 1", new ChessGame()));
+        gameDAO.updateGame(new GameData(ids[3], "bob", "alice", "Game 3", new ChessGame()));
+        gameDAO.updateGame(new GameData(ids[4], "alice", "alice", "Game 4", new ChessGame()));
+
+        var firstPage = gameDAO.listGameSummaries(new GameQuery(0, 2, null, null));
+        Assertions.assertEquals(List.of(ids[0], ids[1]), firstPage.stream().map(GameSummary::gameID).toList());
+        var secondPage = gameDAO.listGameSummaries(new GameQuery(ids[1], 2, null, null));
+        Assertions.assertEquals(List.of(ids[2], ids[3]), secondPage.stream().map(GameSummary::gameID).toList());
+
+        var alice = gameDAO.listGameSummaries(new GameQuery(0, 10, null, "alice"));
+        Assertions.assertEquals(List.of(ids[1], ids[3], ids[4]), alice.stream().map(GameSummary::gameID).toList());
+        var aliceAfter = gameDAO.listGameSummaries(new GameQuery(ids[1], 1, null, "alice"));
+        Assertions.assertEquals(List.of(ids[3]), aliceAfter.stream().map(GameSummary::gameID).toList());
+
+        var open = gameDAO.listGameSummaries(new GameQuery(0, 10, GameSummary.Status.WAITING_FOR_PLAYERS, null));
+        Assertions.assertEquals(List.of(ids[0], ids[1], ids[2]), open.stream().map(GameSummary::gameID).toList());
+        var playing = gameDAO.listGameSummaries(new GameQuery(0, 10, GameSummary.Status.IN_PROGRESS, "bob"));
+        Assertions.assertEquals(List.of(ids[3]), playing.stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    public void listGameSummariesEmpty() throws DataAccessException {
+        Assertions.assertTrue(gameDAO.listGameSummaries(GameQuery.ALL).isEmpty());
+    }
+
     @Test
     public void updateGamePositive() throws DataAccessException {
         int gameID = gameDAO.createGame("Original Name");
@@ -77,6 +132,104 @@ public class GameDAOTests {
         Assertions.assertEquals("blackUser", retrieved.blackUsername());
     }
 
+    @Test
+    public void updateGameKeepsPosition() throws Exception {
+        int gameID = gameDAO.createGame("Moves");
+        GameData original = gameDAO.getGame(gameID);
+        ChessGame game = original.game();
+        game.makeMove(new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null));
+        game.makeMove(new chess.ChessMove(new chess.ChessPosition(7, 5), new chess.ChessPosition(5, 5), null));
+        game.setFinished(true);
+        gameDAO.updateGame(original);
+
+        ChessGame retrieved = gameDAO.getGame(gameID).game();
+        Assertions.assertEquals(game, retrieved);
+        Assertions.assertEquals(game.getTeamTurn(), retrieved.getTeamTurn());
+        Assertions.assertTrue(retrieved.isFinished());
+        Assertions.assertEquals(2, retrieved.getFullmoveNumber());
+    }
+
+    @Test
+    public void addMovePositive() throws Exception {
+        GameDAO snapshotting = new SqlGameDAO(3);
+        int gameID = snapshotting.createGame("Moves");
+        ChessGame game = new ChessGame();
+        chess.ChessMove[] moves = {
+                new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null),
+                new chess.ChessMove(new chess.ChessPosition(7, 5), new chess.ChessPosition(5, 5), null),
+                new chess.ChessMove(new chess.ChessPosition(1, 7), new chess.ChessPosition(3, 6), null),
+                new chess.ChessMove(new chess.ChessPosition(8, 2), new chess.ChessPosition(6, 3), null),
+                new chess.ChessMove(new chess.ChessPosition(1, 6), new chess.ChessPosition(4, 3), null),
+        };
+        for (chess.ChessMove move : moves) {
+            game.makeMove(move);
+            snapshotting.addMove(gameID, move, game);
+            Assertions.assertEquals(game, snapshotting.getGame(gameID).game());
+        }
+
+        GameData retrieved = snapshotting.getGame(gameID);
+        Assertions.assertEquals("Moves", retrieved.gameName());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, retrieved.game().getTeamTurn());
+        Assertions.assertEquals(game, snapshotting.listGames().iterator().next().game());
+    }
+
+    @Test
+    public void addMovesPositive() throws Exception {
+        GameDAO snapshotting = new SqlGameDAO(2);
+        int gameID = snapshotting.createGame("Moves");
+        ChessGame game = new ChessGame();
+        List<chess.ChessMove> moves = List.of(
+                new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null),
+                new chess.ChessMove(new chess.ChessPosition(7, 5), new chess.ChessPosition(5, 5), null),
+                new chess.ChessMove(new chess.ChessPosition(1, 7), new chess.ChessPosition(3, 6), null));
+        for (chess.ChessMove move : moves) {
+            game.makeMove(move);
+        }
+        snapshotting.addMoves(gameID, moves, game);
+        Assertions.assertEquals(game, snapshotting.getGame(gameID).game());
+
+        // A batch that clashes with a logged ply writes none of its moves
+        chess.ChessMove reply = new chess.ChessMove(new chess.ChessPosition(8, 2), new chess.ChessPosition(6, 3), null);
+        ChessGame after = snapshotting.getGame(gameID).game();
+        after.makeMove(reply);
+        Assertions.assertThrows(DataAccessException.class,
+                () -> snapshotting.addMoves(gameID, List.of(moves.get(2), reply), after));
+        Assertions.assertEquals(game, snapshotting.getGame(gameID).game());
+    }
+
+    @Test
+    public void addMoveNegative() throws Exception {
+        int gameID = gameDAO.createGame("Moves");
+        ChessGame game = new ChessGame();
+        chess.ChessMove move = new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null);
+        game.makeMove(move);
+        gameDAO.addMove(gameID, move, game);
+        // A second move at the same ply is rejected, as is a move for a game that doesn't exist
+        Assertions.assertThrows(DataAccessException.class, () -> gameDAO.addMove(gameID, move, game));
+        Assertions.assertThrows(DataAccessException.class, () -> gameDAO.addMove(9999, move, game));
+    }
+
+    @Test
+    public void updateGameStaleNegative() throws Exception {
+        int gameID = gameDAO.createGame("Moves");
+        GameData stale = gameDAO.getGame(gameID);
+        ChessGame game = gameDAO.getGame(gameID).game();
+        chess.ChessMove move = new chess.ChessMove(new chess.ChessPosition(2, 5), new chess.ChessPosition(4, 5), null);
+        game.makeMove(move);
+        gameDAO.addMove(gameID, move, game);
+
+        // Seating a player from a copy read before the move must not undo the move
+        Assertions.assertThrows(DataAccessException.class, () -> gameDAO.updateGame(
+                new GameData(gameID, "white", null, "Moves", stale.game())));
+        GameData retrieved = gameDAO.getGame(gameID);
+        Assertions.assertEquals(game, retrieved.game());
+        Assertions.assertNull(retrieved.whiteUsername());
+
+        gameDAO.updateGame(new GameData(gameID, "white", null, "Moves", retrieved.game()));
+        Assertions.assertEquals("white", gameDAO.getGame(gameID).whiteUsername());
+        Assertions.assertEquals(game, gameDAO.getGame(gameID).game());
+    }
+
     @Test
     public void updateGameNegative() throws DataAccessException {
         // Try to update a game that doesn't exist
@@ -116,6 +116,61 @@ public class ServiceTests {
         
         ListGamesResult listRes = gameService.listGames(res.authToken());
         Assertions.assertEquals(2, listRes.games().size());
+        for (GameSummary game : listRes.games()) {
+            Assertions.assertEquals(GameSummary.Status.WAITING_FOR_PLAYERS, game.status());
+        }
+    }
+
+    @Test
+    @DisplayName("List Games Paged and Filtered")
+    public void listGamesPaged() throws Exception {
+        RegisterResult res = userService.register(new RegisterRequest("user", "pass", "email"));
+        int[] ids = new int[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = gameService.createGame(res.authToken(), new CreateGameRequest("g" + i)).gameID();
+        }
+        gameService.joinGame(res.authToken(), new JoinGameRequest("WHITE", ids[2]));
+
+        ListGamesResult first = gameService.listGames(res.authToken(), new ListGamesRequest(null, "2", null, null));
+        Assertions.assertEquals(2, first.games().size());
+        Assertions.assertEquals(ids[1], (int) first.next());
+        ListGamesResult rest = gameService.listGames(res.authToken(),
+                new ListGamesRequest(String.valueOf(first.next()), "5", null, null));
+        Assertions.assertEquals(3, rest.games().size());
+        Assertions.assertNull(rest.next());
+
+        ListGamesResult mine = gameService.listGames(res.authToken(), new ListGamesRequest(null, null, "open", "user"));
+        Assertions.assertEquals(1, mine.games().size());
+        Assertions.assertEquals(ids[2], mine.games().iterator().next().gameID());
+        Assertions.assertTrue(gameService.listGames(res.authToken(),
+                new ListGamesRequest(null, null, "finished", null)).games().isEmpty());
+    }
+
+    @Test
+    @DisplayName("List Games Exactly Full Last Page")
+    public void listGamesFullLastPage() throws Exception {
+        RegisterResult res = userService.register(new RegisterRequest("user", "pass", "email"));
+        for (int i = 0; i < 4; i++) {
+            gameService.createGame(res.authToken(), new CreateGameRequest("g" + i));
+        }
+        ListGamesResult first = gameService.listGames(res.authToken(), new ListGamesRequest(null, "2", null, null));
+        Assertions.assertNotNull(first.next());
+        ListGamesResult last = gameService.listGames(res.authToken(),
+                new ListGamesRequest(String.valueOf(first.next()), "2", null, null));
+        Assertions.assertEquals(2, last.games().size());
+        Assertions.assertNull(last.next());
+    }
+
+    @Test
+    @DisplayName("List Games Bad Request")
+    public void listGamesBadRequest() throws Exception {
+        RegisterResult res = userService.register(new RegisterRequest("user", "pass", "email"));
+        String[][] invalid = {{"x", null, null}, {"-1", null, null}, {null, "0", null}, {null, "101", null},
+                {null, null, "done"}};
+        for (String[] params : invalid) {
+            Assertions.assertThrows(BadRequestException.class, () -> gameService.listGames(res.authToken(),
+                    new ListGamesRequest(params[0], params[1], params[2], null)));
+        }
     }
 
     @Test
@@ -0,0 +1,214 @@
+package chess;
+
+/**
+ * Precomputed attack sets for every piece type and square.
+ * <p>
+ * Knight, king and pawn attacks do not depend on the rest of the board, so
+ * they are stored directly. Rook and bishop attacks are found with magic
+ * bitboards: the blockers on a slider's rays are multiplied by a per-square
+ * magic number, and the top bits of the product index a table of attack sets.
+ * All tables are built once when the class is loaded.
+ */
+public final class AttackTables {
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    /*
+     * Magic multipliers, found offline by a seeded random search. Each one maps
+     * every blocker subset of its square to a distinct index, or to an index
+     * shared only with subsets that give the same attacks.
+     */
+    private static final long[] ROOK_MAGICS = {
+            0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+            0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+            0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+            0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+            0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+            0x9400808004000800L, 0x0090808004000200L, 0x0000040010810208L, 0x2000020000448534L,
+            0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+            0x0804080100110004L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+            0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x0080200A02001040L,
+            0x600D480280802400L, 0x400B800201800C00L, 0x2408211004004208L, 0x0200211082000844L,
+            0x0020804010208000L, 0x5030004020104000L, 0xA042084080220010L, 0x4088080010008080L,
+            0x5002080100110004L, 0x2012002010040400L, 0x0040318210440008L, 0x0120941040820001L,
+            0x1000800100402100L, 0x0040002010004840L, 0x8108450020001900L, 0x0200204008120200L,
+            0x0080800C00180180L, 0x0885000400420900L, 0x230802011008C400L, 0x3801740891432200L,
+            0x0A00250212024082L, 0x0000882040001105L, 0x0042102082000A42L, 0xC401210810000501L,
+            0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x1862221006220044L, 0x2104A14202020060L, 0x2804081220444001L, 0x2102408900010001L,
+            0x0002021000040002L, 0x08C3100805004300L, 0x1084040124920050L, 0x8900440043382010L,
+            0x2401410802140040L, 0x0901200454208020L, 0x0000090216020541L, 0x1283844040800804L,
+            0x0521840420000803L, 0x0800010402400C40L, 0x0000408E10100404L, 0x0009810048420800L,
+            0x2004211004286808L, 0x13080A1001380080L, 0x0008801004220020L, 0x0024000802480800L,
+            0x1461001190400401L, 0x0020400200500440L, 0x0003000409019000L, 0x000C20820D011802L,
+            0x000804002164100CL, 0x00048400A0011404L, 0x5018110308044100L, 0x0048A00804010020L,
+            0x0007840000802000L, 0x8808A20075004220L, 0x8014040000822100L, 0x110C03000E251101L,
+            0x0081094820202010L, 0x0008041000044100L, 0x00C1202808940800L, 0x8108100821040400L,
+            0x1240010010010041L, 0x0810004080011000L, 0x00A20C0401804A00L, 0x40014C0020050500L,
+            0x5805082012042480L, 0x2004022144031000L, 0x2082002024204808L, 0x0800004200800800L,
+            0x0410020204100A02L, 0x80C1204080804101L, 0x0010104E01800042L, 0x000800810C400208L,
+            0x100080B008201210L, 0x8000440605112101L, 0x000202008C440040L, 0x9004002210442200L,
+            0x2032014088222045L, 0x0C00202222C20000L, 0x0140040820A50100L, 0x0222104C29024018L,
+            0x0200110121202004L, 0x0800104200B00802L, 0x0000401424020801L, 0x4000000004208840L,
+            0x0802E00040104100L, 0x03000020A0424080L, 0x0011C00408188121L, 0x0848020822040013L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    /* Indexed by from * 64 + to, empty when the two squares share no line */
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINE = new long[64 * 64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            long bit = Bitboards.bit(square);
+            KNIGHT[square] = Bitboards.knightAttacks(bit);
+            KING[square] = Bitboards.kingAttacks(bit);
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = Bitboards.pawnAttacks(ChessGame.TeamColor.WHITE, bit);
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = Bitboards.pawnAttacks(ChessGame.TeamColor.BLACK, bit);
+        }
+        ROOK_TABLE = buildSliderTable(Bitboards.ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = buildSliderTable(Bitboards.BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS,
+                BISHOP_OFFSETS);
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) {
+                    continue;
+                }
+                long ends = Bitboards.bit(from) | Bitboards.bit(to);
+                if ((rookAttacks(from, 0) & Bitboards.bit(to)) != 0) {
+                    BETWEEN[from * 64 + to] = rookAttacks(from, Bitboards.bit(to)) & rookAttacks(to, Bitboards.bit(from));
+                    LINE[from * 64 + to] = (rookAttacks(from, 0) & rookAttacks(to, 0)) | ends;
+                } else if ((bishopAttacks(from, 0) & Bitboards.bit(to)) != 0) {
+                    BETWEEN[from * 64 + to] = bishopAttacks(from, Bitboards.bit(to))
+                            & bishopAttacks(to, Bitboards.bit(from));
+                    LINE[from * 64 + to] = (bishopAttacks(from, 0) & bishopAttacks(to, 0)) | ends;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    /**
+     * @return squares attacked by a knight on the given square
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * @return squares attacked by a king on the given square
+     */
+    public static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return squares attacked by a pawn of the given color on the given square
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /**
+     * @param occupied every occupied square on the board
+     * @return squares attacked by a rook on the given square, including the
+     * first blocker in each direction
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+                + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * @param occupied every occupied square on the board
+     * @return squares attacked by a bishop on the given square, including the
+     * first blocker in each direction
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+                + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * @param occupied every occupied square on the board
+     * @return squares attacked by a queen on the given square
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares on a shared rank, file or
+     * diagonal, or an empty bitboard if they share none
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from * 64 + to];
+    }
+
+    /**
+     * @return every square of the rank, file or diagonal through both squares,
+     * or an empty bitboard if they share none
+     */
+    public static long line(int from, int to) {
+        return LINE[from * 64 + to];
+    }
+
+    private static long[] buildSliderTable(int[][] directions, long[] magics, long[] masks, int[] shifts,
+                                           int[] offsets) {
+        int total = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantBlockers(square, directions);
+            shifts[square] = 64 - Long.bitCount(masks[square]);
+            offsets[square] = total;
+            total += 1 << Long.bitCount(masks[square]);
+        }
+
+        long[] table = new long[total];
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            // walk every subset of the mask with the carry-rippler trick
+            long subset = 0;
+            do {
+                int index = offsets[square] + (int) ((subset * magics[square]) >>> shifts[square]);
+                table[index] = Bitboards.slidingAttacks(square, subset, directions);
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+        }
+        return table;
+    }
+
+    /*
+     * The squares whose occupancy can change a slider's attacks: every square
+     * on its rays except the last one before the edge, which is attacked
+     * whether or not it is occupied.
+     */
+    private static long relevantBlockers(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while (row + direction[0] >= 0 && row + direction[0] < 8
+                    && col + direction[1] >= 0 && col + direction[1] < 8) {
+                mask |= 1L << (row * 8 + col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,156 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read only endgame table for one set of pieces, memory mapped from a file.
+ * <p>
+ * The file is a header followed by two bits per position: whether the side to
+ * move wins, draws or loses with best play. Positions that cannot occur, such
+ * as two pieces on one square, are stored as draws. Every position of the
+ * material has a fixed place, described by {@link Material}, so a probe reads
+ * one byte of the mapped file.
+ * <p>
+ * Tables are written by {@link BitbaseGenerator} and probed through
+ * {@link Bitbases}. A table is safe to probe from any number of threads.
+ */
+public final class Bitbase {
+
+    /**
+     * Bytes at the start of every bitbase file
+     */
+    public static final int MAGIC = 0x43484242;
+
+    /**
+     * Version of the file layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version and an 8 byte material signature
+     */
+    public static final int HEADER_BYTES = 16;
+
+    /**
+     * Most pieces, kings included, a table can hold
+     */
+    public static final int MAX_PIECES = 4;
+
+    /* Values stored for each position, for the side to move */
+    static final int DRAW = 0;
+    static final int WIN = 1;
+    static final int LOSS = 2;
+
+    private static final int SIGNATURE_BYTES = 8;
+
+    private final ByteBuffer buffer;
+    private final String material;
+    private final int pieceCount;
+
+    private Bitbase(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a bitbase");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported bitbase version " + buffer.getInt(4));
+        }
+        StringBuilder signature = new StringBuilder(SIGNATURE_BYTES);
+        for (int i = 8; i < HEADER_BYTES && buffer.get(i) != 0; i++) {
+            signature.append((char) buffer.get(i));
+        }
+        material = signature.toString();
+        Material.parse(material);
+        pieceCount = material.length();
+        if (pieceCount > MAX_PIECES) {
+            throw new IllegalArgumentException("Bitbase has too many pieces: " + material);
+        }
+        if (HEADER_BYTES + Material.positions(pieceCount) / 4 > buffer.capacity()) {
+            throw new IllegalArgumentException("Bitbase is truncated");
+        }
+    }
+
+    /**
+     * Maps a bitbase file into memory. The file stays mapped until the table is
+     * garbage collected.
+     *
+     * @param path the bitbase file
+     * @return the mapped table
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid bitbase
+     */
+    public static Bitbase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Bitbase(mapped);
+        }
+    }
+
+    /**
+     * Wraps a table that is already in memory
+     *
+     * @param bytes the contents of a bitbase file
+     * @return the table
+     * @throws IllegalArgumentException if the bytes are not a valid bitbase
+     */
+    public static Bitbase of(ByteBuffer bytes) {
+        return new Bitbase(bytes.slice());
+    }
+
+    /**
+     * Lays out a table in the file format
+     *
+     * @param material the table's signature
+     * @param values   one value per position, any value other than
+     *                 {@link #WIN} or {@link #LOSS} being stored as a draw
+     * @return the file's contents, ready to read
+     */
+    static ByteBuffer encode(String material, byte[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (values.length + 3) / 4);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        byte[] signature = material.getBytes(StandardCharsets.US_ASCII);
+        buffer.put(signature, 0, Math.min(signature.length, SIGNATURE_BYTES));
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < values.length; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < values.length; j++) {
+                int value = values[i + j];
+                if (value == WIN || value == LOSS) {
+                    packed |= value << (2 * j);
+                }
+            }
+            buffer.put((byte) packed);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @return the table's material signature, such as {@code KRK}
+     */
+    public String material() {
+        return material;
+    }
+
+    /**
+     * @return the number of pieces in the table, kings included
+     */
+    public int pieceCount() {
+        return pieceCount;
+    }
+
+    /**
+     * @param index a position's index, from {@link Material#index}
+     * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move
+     */
+    int value(int index) {
+        int packed = buffer.get(HEADER_BYTES + (index >>> 2));
+        return (packed >>> ((index & 3) << 1)) & 3;
+    }
+}
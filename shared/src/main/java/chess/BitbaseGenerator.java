@@ -0,0 +1,493 @@
+package chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Builds {@link Bitbase} files by retrograde analysis.
+ * <p>
+ * Every position of a table starts unknown. Each pass looks at the unknown
+ * positions: one with a move to a position lost for the opponent is won, and
+ * one whose moves all reach positions won for the opponent is lost, as is a
+ * checkmate. Passes repeat until one changes nothing, and whatever is still
+ * unknown is a draw. A capture or promotion leaves the table, so its result
+ * comes from a smaller table, which is built first if the output directory
+ * does not already have it.
+ * <p>
+ * Each pass is split over a {@link ForkJoinPool}. Threads write results into
+ * the same array while they read it, which only lets a result be seen a pass
+ * earlier than it would be otherwise.
+ * <p>
+ * Castling and en passant are not part of this game's rules, and a game is
+ * never drawn by repetition or the fifty move rule, so the tables are exact
+ * for this game.
+ */
+public class BitbaseGenerator {
+
+    /**
+     * Every material with three or four pieces
+     */
+    public static final List<String> DEFAULT_MATERIALS = defaultMaterials();
+
+    /* Positions each fork-join task solves without splitting */
+    private static final int CHUNK = 1 << 14;
+
+    private static final byte UNKNOWN = 3;
+    private static final ChessPiece.PieceType[] PROMOTIONS = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    /**
+     * What building one table took
+     *
+     * @param material     the table's signature
+     * @param positions    positions in the table, possible or not
+     * @param wins         positions won for the side to move
+     * @param losses       positions lost for the side to move
+     * @param passes       passes until nothing changed
+     * @param elapsedNanos wall clock time taken, not counting smaller tables
+     */
+    public record Report(String material, long positions, long wins, long losses, int passes,
+                         long elapsedNanos) {
+        @Override
+        public String toString() {
+            return String.format("%s: %,d positions, %,d wins, %,d losses, %d passes in %,d ms",
+                    material, positions, wins, losses, passes, elapsedNanos / 1_000_000);
+        }
+    }
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final Consumer<Report> listener;
+    private final Map<String, Bitbase> tables = new HashMap<>();
+
+    /**
+     * @param directory where to write tables and look for existing ones
+     * @param pool      the pool to split passes over
+     * @param listener  told about each table built, or null
+     */
+    public BitbaseGenerator(Path directory, ForkJoinPool pool, Consumer<Report> listener) {
+        this.directory = directory;
+        this.pool = pool;
+        this.listener = listener;
+    }
+
+    /**
+     * Gets a table, building it and any smaller tables it needs that are not
+     * already in the output directory
+     *
+     * @param material a canonical material signature, such as {@code KRK}
+     * @return the table, mapped from its file
+     * @throws IOException              if a table cannot be read or written
+     * @throws IllegalArgumentException if the signature is not canonical or has
+     *                                  more than {@link Bitbase#MAX_PIECES}
+     */
+    public Bitbase generate(String material) throws IOException {
+        Bitbase table = tables.get(material);
+        if (table != null) {
+            return table;
+        }
+        Path path = directory.resolve(material + Bitbases.FILE_EXTENSION);
+        if (Files.exists(path)) {
+            table = Bitbase.open(path);
+        } else {
+            int[] pieces = Material.parse(material);
+            if (pieces.length > Bitbase.MAX_PIECES) {
+                throw new IllegalArgumentException("Bitbases hold at most " + Bitbase.MAX_PIECES + " pieces");
+            }
+            Files.createDirectories(directory);
+            ByteBuffer contents = new Job(material, pieces).run();
+            // written aside and moved into place, so a run that is stopped never
+            // leaves a partial table behind
+            Path partial = directory.resolve(material + Bitbases.FILE_EXTENSION + ".tmp");
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING);
+            table = Bitbase.open(path);
+        }
+        tables.put(material, table);
+        return table;
+    }
+
+    /**
+     * Builds every table in a list that the output directory does not have
+     *
+     * @return every table in the output directory, including the smaller
+     * tables the listed ones needed
+     */
+    public Bitbases generateAll(List<String> materials) throws IOException {
+        for (String material : materials) {
+            generate(material);
+        }
+        return Bitbases.open(directory);
+    }
+
+    /*
+     * Where a capture or promotion leads: the smaller table, or null when only
+     * the kings are left, and for each of its slots the slot it comes from
+     */
+    private record Transition(Bitbase table, boolean flipped, int[] sources) {
+        int value(int[] squares, boolean whiteToMove) {
+            if (table == null) {
+                return Bitbase.DRAW;
+            }
+            int index = whiteToMove != flipped ? 0 : 1;
+            for (int source : sources) {
+                index = index << 6 | (flipped ? squares[source] ^ 56 : squares[source]);
+            }
+            return table.value(index);
+        }
+    }
+
+    /*
+     * The state of building one table
+     */
+    private final class Job {
+        private final String material;
+        private final int count;
+        private final int[] colors;
+        private final ChessPiece.PieceType[] types;
+        private final int[] kings = new int[2];
+        private final byte[] values;
+
+        /* Indexed by captured slot plus one, moving slot, promotion plus one */
+        private final Transition[][][] transitions;
+
+        Job(String material, int[] pieces) throws IOException {
+            this.material = material;
+            count = pieces.length;
+            colors = new int[count];
+            types = new ChessPiece.PieceType[count];
+            for (int slot = 0; slot < count; slot++) {
+                colors[slot] = Bitboards.colorOf(pieces[slot]).ordinal();
+                types[slot] = Bitboards.typeOf(pieces[slot]);
+                if (types[slot] == ChessPiece.PieceType.KING) {
+                    kings[colors[slot]] = slot;
+                }
+            }
+            values = new byte[(int) Material.positions(count)];
+            Arrays.fill(values, UNKNOWN);
+
+            transitions = new Transition[count + 1][count][PROMOTIONS.length + 1];
+            for (int captured = -1; captured < count; captured++) {
+                for (int mover = 0; mover < count; mover++) {
+                    if (captured >= 0 && (types[captured] == ChessPiece.PieceType.KING
+                            || colors[captured] == colors[mover])) {
+                        continue;
+                    }
+                    boolean pawn = types[mover] == ChessPiece.PieceType.PAWN;
+                    for (int promotion = -1; promotion < PROMOTIONS.length; promotion++) {
+                        if (promotion >= 0 && !pawn || captured < 0 && promotion < 0) {
+                            continue;
+                        }
+                        transitions[captured + 1][mover][promotion + 1] = transition(pieces, captured, mover,
+                                promotion < 0 ? null : PROMOTIONS[promotion]);
+                    }
+                }
+            }
+        }
+
+        private Transition transition(int[] pieces, int captured, int mover, ChessPiece.PieceType promotion)
+                throws IOException {
+            int[] next = new int[count];
+            int[] slots = new int[count];
+            int size = 0;
+            for (int slot = 0; slot < count; slot++) {
+                if (slot == captured) {
+                    continue;
+                }
+                int piece = pieces[slot];
+                if (slot == mover && promotion != null) {
+                    piece = Bitboards.pieceIndex(Bitboards.colorOf(piece), promotion);
+                }
+                next[size] = piece;
+                slots[size++] = slot;
+            }
+            if (size == 2) {
+                return new Transition(null, false, new int[0]);
+            }
+            Material layout = Material.of(next, size);
+            int[] sources = new int[size];
+            for (int i = 0; i < size; i++) {
+                sources[i] = slots[layout.order[i]];
+            }
+            return new Transition(generate(layout.signature), layout.flipped, sources);
+        }
+
+        ByteBuffer run() {
+            long start = System.nanoTime();
+            int passes = 0;
+            long changed;
+            do {
+                changed = pool.invoke(new Pass(this, 0, values.length));
+                passes++;
+            } while (changed > 0);
+
+            long wins = 0;
+            long losses = 0;
+            for (byte value : values) {
+                if (value == Bitbase.WIN) {
+                    wins++;
+                } else if (value == Bitbase.LOSS) {
+                    losses++;
+                }
+            }
+            ByteBuffer contents = Bitbase.encode(material, values);
+            if (listener != null) {
+                listener.accept(new Report(material, values.length, wins, losses, passes,
+                        System.nanoTime() - start));
+            }
+            return contents;
+        }
+
+        /*
+         * Solves the unknown positions in a range and returns how many were
+         * decided
+         */
+        long solve(int from, int to) {
+            int[] squares = new int[count];
+            long changed = 0;
+            for (int index = from; index < to; index++) {
+                if (values[index] != UNKNOWN) {
+                    continue;
+                }
+                int value = evaluate(index, squares);
+                if (value != UNKNOWN) {
+                    values[index] = (byte) value;
+                    changed++;
+                }
+            }
+            return changed;
+        }
+
+        private int evaluate(int index, int[] squares) {
+            int us = index >>> (6 * count);
+            int them = us ^ 1;
+            long own = 0;
+            long enemies = 0;
+            for (int slot = count - 1; slot >= 0; slot--) {
+                squares[slot] = (index >>> (6 * (count - 1 - slot))) & 63;
+                if (colors[slot] == us) {
+                    own |= Bitboards.bit(squares[slot]);
+                } else {
+                    enemies |= Bitboards.bit(squares[slot]);
+                }
+            }
+            long occupied = own | enemies;
+            if (Long.bitCount(occupied) != count) {
+                return Bitbase.DRAW;
+            }
+            for (int slot = 0; slot < count; slot++) {
+                if (types[slot] == ChessPiece.PieceType.PAWN
+                        && (Bitboards.bit(squares[slot]) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+                    return Bitbase.DRAW;
+                }
+            }
+            if (attacked(squares[kings[them]], us, occupied, -1, squares)) {
+                // the side that just moved left its king in check
+                return Bitbase.DRAW;
+            }
+
+            boolean whiteToMove = us == 0;
+            boolean anyMove = false;
+            boolean allWon = true;
+            for (int slot = 0; slot < count; slot++) {
+                if (colors[slot] != us) {
+                    continue;
+                }
+                int from = squares[slot];
+                long targets = targets(slot, from, own, enemies, occupied);
+                while (targets != 0) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int captured = -1;
+                    if ((enemies & Bitboards.bit(to)) != 0) {
+                        for (int other = 0; other < count; other++) {
+                            if (colors[other] == them && squares[other] == to) {
+                                captured = other;
+                            }
+                        }
+                    }
+                    squares[slot] = to;
+                    long after = (occupied & ~Bitboards.bit(from)) | Bitboards.bit(to);
+                    if (attacked(squares[kings[us]], them, after, captured, squares)) {
+                        squares[slot] = from;
+                        continue;
+                    }
+                    anyMove = true;
+                    int result;
+                    if (types[slot] == ChessPiece.PieceType.PAWN
+                            && (Bitboards.bit(to) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+                        result = Bitbase.WIN;
+                        for (int promotion = 1; promotion <= PROMOTIONS.length; promotion++) {
+                            int value = transitions[captured + 1][slot][promotion].value(squares, !whiteToMove);
+                            if (value == Bitbase.LOSS) {
+                                result = Bitbase.LOSS;
+                                break;
+                            }
+                            if (value != Bitbase.WIN) {
+                                result = UNKNOWN;
+                            }
+                        }
+                    } else if (captured >= 0) {
+                        result = transitions[captured + 1][slot][0].value(squares, !whiteToMove);
+                    } else {
+                        int next = them;
+                        for (int square : squares) {
+                            next = next << 6 | square;
+                        }
+                        result = values[next];
+                    }
+                    squares[slot] = from;
+                    if (result == Bitbase.LOSS) {
+                        return Bitbase.WIN;
+                    }
+                    if (result != Bitbase.WIN) {
+                        allWon = false;
+                    }
+                }
+            }
+            if (!anyMove) {
+                return attacked(squares[kings[us]], them, occupied, -1, squares) ? Bitbase.LOSS : Bitbase.DRAW;
+            }
+            return allWon ? Bitbase.LOSS : UNKNOWN;
+        }
+
+        private long targets(int slot, int from, long own, long enemies, long occupied) {
+            return switch (types[slot]) {
+                case KING -> AttackTables.kingAttacks(from) & ~own;
+                case QUEEN -> AttackTables.queenAttacks(from, occupied) & ~own;
+                case ROOK -> AttackTables.rookAttacks(from, occupied) & ~own;
+                case BISHOP -> AttackTables.bishopAttacks(from, occupied) & ~own;
+                case KNIGHT -> AttackTables.knightAttacks(from) & ~own;
+                case PAWN -> {
+                    ChessGame.TeamColor color = ChessGame.TeamColor.values()[colors[slot]];
+                    long pawn = Bitboards.bit(from);
+                    long pushes;
+                    if (color == ChessGame.TeamColor.WHITE) {
+                        pushes = (pawn << 8) & ~occupied;
+                        pushes |= ((pushes & (Bitboards.RANK_2 << 8)) << 8) & ~occupied;
+                    } else {
+                        pushes = (pawn >>> 8) & ~occupied;
+                        pushes |= ((pushes & (Bitboards.RANK_7 >>> 8)) >>> 8) & ~occupied;
+                    }
+                    yield pushes | (AttackTables.pawnAttacks(color, from) & enemies);
+                }
+            };
+        }
+
+        /*
+         * True if a piece of the given color other than the skipped slot
+         * attacks the square
+         */
+        private boolean attacked(int square, int color, long occupied, int skipped, int[] squares) {
+            long target = Bitboards.bit(square);
+            for (int slot = 0; slot < count; slot++) {
+                if (colors[slot] != color || slot == skipped) {
+                    continue;
+                }
+                int from = squares[slot];
+                long attacks = switch (types[slot]) {
+                    case KING -> AttackTables.kingAttacks(from);
+                    case QUEEN -> AttackTables.queenAttacks(from, occupied);
+                    case ROOK -> AttackTables.rookAttacks(from, occupied);
+                    case BISHOP -> AttackTables.bishopAttacks(from, occupied);
+                    case KNIGHT -> AttackTables.knightAttacks(from);
+                    case PAWN -> AttackTables.pawnAttacks(ChessGame.TeamColor.values()[color], from);
+                };
+                if ((attacks & target) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     * One pass over a range of positions, split in half until it is small
+     */
+    @SuppressWarnings("serial") // RecursiveTask is Serializable, but a pass never leaves the pool
+    private static final class Pass extends RecursiveTask<Long> {
+        private final Job job;
+        private final int from;
+        private final int to;
+
+        Pass(Job job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= CHUNK) {
+                return job.solve(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Pass left = new Pass(job, from, middle);
+            left.fork();
+            long right = new Pass(job, middle, to).compute();
+            return right + left.join();
+        }
+    }
+
+    private static List<String> defaultMaterials() {
+        String pieces = "QRBNP";
+        List<String> materials = new ArrayList<>();
+        for (int i = 0; i < pieces.length(); i++) {
+            materials.add("K" + pieces.charAt(i) + "K");
+        }
+        for (int i = 0; i < pieces.length(); i++) {
+            for (int j = i; j < pieces.length(); j++) {
+                materials.add("K" + pieces.charAt(i) + pieces.charAt(j) + "K");
+                materials.add("K" + pieces.charAt(i) + "K" + pieces.charAt(j));
+            }
+        }
+        return List.copyOf(materials);
+    }
+
+    /**
+     * Builds bitbases, every three and four piece table by default. Usage:
+     * {@code BitbaseGenerator [--threads n] <directory> [material]...}
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--threads")) {
+            threads = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length <= first) {
+            System.err.println("Usage: BitbaseGenerator [--threads n] <directory> [material]...");
+            System.exit(1);
+        }
+        Path directory = Path.of(args[first]);
+        List<String> materials = args.length > first + 1
+                ? List.of(Arrays.copyOfRange(args, first + 1, args.length)) : DEFAULT_MATERIALS;
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Bitbases bitbases = new BitbaseGenerator(directory, pool, System.out::println).generateAll(materials);
+            System.out.printf("%s: %d tables in %,d ms%n", directory, bitbases.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
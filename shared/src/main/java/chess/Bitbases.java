@@ -0,0 +1,196 @@
+package chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of {@link Bitbase} tables, looked up by the pieces on the board.
+ * <p>
+ * One set can be installed for the whole process, see {@link #installed}. It
+ * answers {@link ChessGame#theoreticalResult} and is probed by the search
+ * engine. A set is safe to probe from any number of threads.
+ */
+public final class Bitbases {
+
+    /**
+     * System property naming a directory of bitbase files to install on first
+     * use
+     */
+    public static final String DIRECTORY_PROPERTY = "chess.bitbases";
+
+    /**
+     * Extension of bitbase files
+     */
+    public static final String FILE_EXTENSION = ".bb";
+
+    private static final Bitbases EMPTY = new Bitbases(Map.of());
+
+    private static volatile Bitbases installed;
+
+    private final Map<String, Bitbase> tables;
+    private final int maxPieces;
+
+    /* Layouts by piece counts, for pieces listed by piece index then square */
+    private final Map<Long, Material> layouts = new ConcurrentHashMap<>();
+
+    private Bitbases(Map<String, Bitbase> tables) {
+        this.tables = tables;
+        int most = 0;
+        for (Bitbase table : tables.values()) {
+            most = Math.max(most, table.pieceCount());
+        }
+        maxPieces = most;
+    }
+
+    /**
+     * @param tables the tables in the set; a later table replaces an earlier
+     *               one for the same material
+     * @return a set of the given tables
+     */
+    public static Bitbases of(Collection<Bitbase> tables) {
+        Map<String, Bitbase> byMaterial = new TreeMap<>();
+        for (Bitbase table : tables) {
+            byMaterial.put(table.material(), table);
+        }
+        return new Bitbases(byMaterial);
+    }
+
+    /**
+     * Maps every bitbase file in a directory
+     *
+     * @param directory the directory to look in; files without the
+     *                  {@value #FILE_EXTENSION} extension are ignored
+     * @return the tables found
+     * @throws IOException              if the directory or a file cannot be read
+     * @throws IllegalArgumentException if a file is not a valid bitbase
+     */
+    public static Bitbases open(Path directory) throws IOException {
+        Map<String, Bitbase> byMaterial = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                Bitbase table = Bitbase.open(file);
+                byMaterial.put(table.material(), table);
+            }
+        }
+        return new Bitbases(byMaterial);
+    }
+
+    /**
+     * @return a set with no tables, which knows no results
+     */
+    public static Bitbases empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Gets the set installed for this process. Unless {@link #install} was
+     * called first, it is opened on first use from the directory named by the
+     * {@value #DIRECTORY_PROPERTY} system property, or is empty if the property
+     * is not set.
+     *
+     * @return the process wide set
+     * @throws UncheckedIOException if the directory cannot be read
+     */
+    public static Bitbases installed() {
+        Bitbases current = installed;
+        if (current == null) {
+            synchronized (Bitbases.class) {
+                current = installed;
+                if (current == null) {
+                    String directory = System.getProperty(DIRECTORY_PROPERTY);
+                    try {
+                        current = directory == null ? EMPTY : open(Path.of(directory));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not open bitbases in " + directory, e);
+                    }
+                    installed = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param bitbases the set to use for the rest of the process, or null to
+     *                 open the {@value #DIRECTORY_PROPERTY} directory again on
+     *                 next use
+     */
+    public static void install(Bitbases bitbases) {
+        installed = bitbases;
+    }
+
+    /**
+     * @return the most pieces, kings included, of any table in the set, or 0 if
+     * it is empty
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * @return the number of tables in the set
+     */
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * @param material a material signature, such as {@code KQKR}
+     * @return the table for that material, or null if the set does not have it
+     */
+    public Bitbase get(String material) {
+        return tables.get(material);
+    }
+
+    /**
+     * Looks up the result of a position with best play
+     *
+     * @param board the position
+     * @param turn  the team whose turn it is
+     * @return whether that team wins, draws or loses, or null if the set has no
+     * table for the pieces on the board
+     */
+    public ChessGame.TheoreticalResult probe(ChessBoard board, ChessGame.TeamColor turn) {
+        long occupied = board.getOccupancy();
+        int count = Long.bitCount(occupied);
+        if (count > maxPieces) {
+            return null;
+        }
+        int[] pieces = new int[count];
+        int[] squares = new int[count];
+        long counts = 0;
+        int found = 0;
+        for (int index = 0; index < Bitboards.PIECE_COUNT; index++) {
+            long bitboard = board.getBitboard(Bitboards.colorOf(index), Bitboards.typeOf(index));
+            counts |= (long) Long.bitCount(bitboard) << (index * 4);
+            while (bitboard != 0) {
+                pieces[found] = index;
+                squares[found++] = Long.numberOfTrailingZeros(bitboard);
+                bitboard &= bitboard - 1;
+            }
+        }
+        if (count == 2) {
+            return found == 2 && Material.of(pieces, count) != null ? ChessGame.TheoreticalResult.DRAW : null;
+        }
+        Material layout = layouts.computeIfAbsent(counts, key -> Material.of(pieces, count));
+        if (layout == null) {
+            return null;
+        }
+        Bitbase table = tables.get(layout.signature);
+        if (table == null) {
+            return null;
+        }
+        return switch (table.value(layout.index(squares, turn == ChessGame.TeamColor.WHITE))) {
+            case Bitbase.WIN -> ChessGame.TheoreticalResult.WIN;
+            case Bitbase.LOSS -> ChessGame.TheoreticalResult.LOSS;
+            default -> ChessGame.TheoreticalResult.DRAW;
+        };
+    }
+}
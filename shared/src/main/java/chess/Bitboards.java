@@ -0,0 +1,146 @@
+package chess;
+
+/**
+ * Helpers for working with 64-bit bitboards.
+ * <p>
+ * Squares are numbered 0 to 63, starting at the bottom left of the board
+ * (row 1, column 1) and moving left to right, then bottom to top. Bit n of a
+ * bitboard is set when square n is part of the set.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    public static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    public static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    /**
+     * Number of piece bitboards, one per piece type and color
+     */
+    public static final int PIECE_COUNT = COLORS.length * TYPES.length;
+
+    private Bitboards() {
+    }
+
+    /**
+     * @return the square index for a 1-based row and column
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @return the square index of a position
+     */
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the 1-based row of a square index
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the 1-based column of a square index
+     */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return a bitboard with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * @return the index of the bitboard holding pieces of this color and type
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
+    }
+
+    /**
+     * @return the color of the pieces held by the bitboard at this index
+     */
+    public static ChessGame.TeamColor colorOf(int pieceIndex) {
+        return COLORS[pieceIndex / TYPES.length];
+    }
+
+    /**
+     * @return the type of the pieces held by the bitboard at this index
+     */
+    public static ChessPiece.PieceType typeOf(int pieceIndex) {
+        return TYPES[pieceIndex % TYPES.length];
+    }
+
+    /**
+     * @return the squares a pawn of the given color on each square of
+     * {@code pawns} attacks
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, long pawns) {
+        if (color == ChessGame.TeamColor.WHITE) {
+            return ((pawns & ~FILE_A) << 7) | ((pawns & ~FILE_H) << 9);
+        }
+        return ((pawns & ~FILE_A) >>> 9) | ((pawns & ~FILE_H) >>> 7);
+    }
+
+    /**
+     * @return the squares a knight on each square of {@code knights} attacks
+     */
+    public static long knightAttacks(long knights) {
+        long l1 = (knights >>> 1) & ~FILE_H;
+        long l2 = (knights >>> 2) & ~(FILE_H | FILE_H >>> 1);
+        long r1 = (knights << 1) & ~FILE_A;
+        long r2 = (knights << 2) & ~(FILE_A | FILE_A << 1);
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    /**
+     * @return the squares a king on each square of {@code kings} attacks
+     */
+    public static long kingAttacks(long kings) {
+        long sideways = ((kings << 1) & ~FILE_A) | ((kings >>> 1) & ~FILE_H);
+        long row = kings | sideways;
+        return sideways | (row << 8) | (row >>> 8);
+    }
+
+    /**
+     * Walks each direction from a square until the edge of the board or the
+     * first occupied square, which is included in the result.
+     *
+     * @param directions {row, column} steps to walk in
+     * @return the squares a slider on {@code square} attacks
+     */
+    public static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = (square >>> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
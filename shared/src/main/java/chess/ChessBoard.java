@@ -11,6 +11,35 @@ import java.util.Arrays;
 public class ChessBoard {
 
     ChessPiece[][] squares = new ChessPiece[8][8];
+
+    /*
+     * Bitboard view of squares: one board per piece type and color, plus an
+     * occupancy board per color. It is not serialized, so it is rebuilt from
+     * squares the first time it is needed after construction or deserialization.
+     */
+    private transient long[] pieceBitboards;
+    private transient long[] colorBitboards;
+
+    /*
+     * Square index of each color's king, or -1 if it has none. When a color has
+     * several kings this is the lowest one, matching a row by row scan. Kept
+     * alongside the bitboards and rebuilt with them.
+     */
+    private transient int[] kingSquares;
+
+    /* Zobrist key of the pieces on the board, kept with the bitboards */
+    private transient long positionKey;
+
+    /*
+     * Sums of PieceSquareTables values for the pieces on the board. Only kept
+     * once something has asked for them, so boards that are never evaluated,
+     * such as the server's, neither pay for them nor load the tables.
+     */
+    private transient boolean scored;
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+
     public ChessBoard() {
         
     }
@@ -22,7 +51,23 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        int row = position.getRow() - 1;
+        int col = position.getColumn() - 1;
+        ChessPiece previous = squares[row][col];
+        squares[row][col] = piece;
+        updateBitboards(row * 8 + col, previous, piece);
+    }
+
+    /**
+     * Adds a chess piece to the chessboard, replacing whatever was there
+     *
+     * @param square the square index to add the piece to
+     * @param piece  the piece to add, or null to clear the square
+     */
+    public void addPiece(int square, ChessPiece piece) {
+        ChessPiece previous = squares[square >>> 3][square & 7];
+        squares[square >>> 3][square & 7] = piece;
+        updateBitboards(square, previous, piece);
     }
 
     /**
@@ -36,37 +81,240 @@ public class ChessBoard {
         return squares[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    /**
+     * Gets a chess piece on the chessboard
+     *
+     * @param square The square index to get the piece from
+     * @return Either the piece on the square, or null if the square is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color and type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureBitboards();
+        return pieceBitboards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of the squares holding pieces of the given color
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        ensureBitboards();
+        return colorBitboards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        ensureBitboards();
+        return colorBitboards[0] | colorBitboards[1];
+    }
+
+    /**
+     * Gets the Zobrist key of the pieces on the board. Equal boards always have
+     * equal keys, and different boards almost never do.
+     *
+     * @return 64-bit key of the piece placement, not including the side to move
+     */
+    public long positionKey() {
+        ensureBitboards();
+        return positionKey;
+    }
+
+    /**
+     * @return midgame material and piece-square score, positive when white is
+     * ahead
+     */
+    public int getMidgameScore() {
+        ensureScores();
+        return midgameScore;
+    }
+
+    /**
+     * @return endgame material and piece-square score, positive when white is
+     * ahead
+     */
+    public int getEndgameScore() {
+        ensureScores();
+        return endgameScore;
+    }
+
+    /**
+     * @return how much non-pawn material is left, from 0 for bare kings up to
+     * {@link PieceSquareTables#maxPhase} for the starting position
+     */
+    public int getPhase() {
+        ensureScores();
+        return phase;
+    }
+
+    /**
+     * @return square index of the given color's king, or -1 if it has no king
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        ensureBitboards();
+        return kingSquares[color.ordinal()];
+    }
+
+    private void updateBitboards(int square, ChessPiece previous, ChessPiece piece) {
+        if (pieceBitboards == null) {
+            return;
+        }
+        long bit = Bitboards.bit(square);
+        if (previous != null) {
+            int index = Bitboards.pieceIndex(previous.getTeamColor(), previous.getPieceType());
+            pieceBitboards[index] &= ~bit;
+            colorBitboards[previous.getTeamColor().ordinal()] &= ~bit;
+            positionKey ^= Zobrist.piece(index, square);
+            if (scored) {
+                midgameScore -= PieceSquareTables.midgame(index, square);
+                endgameScore -= PieceSquareTables.endgame(index, square);
+                phase -= PieceSquareTables.phase(index);
+            }
+        }
+        if (piece != null) {
+            int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            pieceBitboards[index] |= bit;
+            colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+            positionKey ^= Zobrist.piece(index, square);
+            if (scored) {
+                midgameScore += PieceSquareTables.midgame(index, square);
+                endgameScore += PieceSquareTables.endgame(index, square);
+                phase += PieceSquareTables.phase(index);
+            }
+        }
+        if (previous != null && previous.getPieceType() == ChessPiece.PieceType.KING) {
+            updateKingSquare(previous.getTeamColor());
+        }
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING) {
+            updateKingSquare(piece.getTeamColor());
+        }
+    }
+
+    private void updateKingSquare(ChessGame.TeamColor color) {
+        long kings = pieceBitboards[Bitboards.pieceIndex(color, ChessPiece.PieceType.KING)];
+        kingSquares[color.ordinal()] = kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    private void ensureBitboards() {
+        if (pieceBitboards == null) {
+            rebuildBitboards();
+        }
+    }
+
+    /*
+     * Sums the scores of the pieces on the board, after which addPiece keeps
+     * them up to date
+     */
+    private void ensureScores() {
+        ensureBitboards();
+        if (scored) {
+            return;
+        }
+        int midgame = 0;
+        int endgame = 0;
+        int totalPhase = 0;
+        for (int index = 0; index < Bitboards.PIECE_COUNT; index++) {
+            long pieces = pieceBitboards[index];
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                midgame += PieceSquareTables.midgame(index, square);
+                endgame += PieceSquareTables.endgame(index, square);
+                totalPhase += PieceSquareTables.phase(index);
+            }
+        }
+        midgameScore = midgame;
+        endgameScore = endgame;
+        phase = totalPhase;
+        scored = true;
+    }
+
+    /**
+     * Recomputes the bitboards and king squares from the squares. Called when a
+     * board is installed in a game, so later lookups start from known state.
+     */
+    void rebuildBitboards() {
+        long[] pieces = new long[Bitboards.PIECE_COUNT];
+        long[] colors = new long[2];
+        long key = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = squares[square >>> 3][square & 7];
+            if (piece != null) {
+                int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+                pieces[index] |= Bitboards.bit(square);
+                colors[piece.getTeamColor().ordinal()] |= Bitboards.bit(square);
+                key ^= Zobrist.piece(index, square);
+            }
+        }
+        positionKey = key;
+        scored = false;
+        colorBitboards = colors;
+        kingSquares = new int[2];
+        pieceBitboards = pieces;
+        updateKingSquare(ChessGame.TeamColor.WHITE);
+        updateKingSquare(ChessGame.TeamColor.BLACK);
+    }
+
+    /**
+     * @return a new board with the same pieces, which can be changed without
+     * affecting this one
+     */
+    public ChessBoard copy() {
+        ChessBoard copy = new ChessBoard();
+        for (int row = 0; row < 8; row++) {
+            copy.squares[row] = squares[row].clone();
+        }
+        if (pieceBitboards != null) {
+            copy.pieceBitboards = pieceBitboards.clone();
+            copy.colorBitboards = colorBitboards.clone();
+            copy.kingSquares = kingSquares.clone();
+            copy.positionKey = positionKey;
+            copy.scored = scored;
+            copy.midgameScore = midgameScore;
+            copy.endgameScore = endgameScore;
+            copy.phase = phase;
+        }
+        return copy;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
         squares = new ChessPiece[8][8];
+        pieceBitboards = null;
 
-        addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
 
         for (int i = 1; i <= 8; i++) {
-            addPiece(new ChessPosition(2, i), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(2, i), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
         }
 
-        addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
         for (int i = 1; i <= 8; i++) {
-            addPiece(new ChessPosition(7, i), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, i), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 
@@ -103,6 +351,6 @@ public class ChessBoard {
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(positionKey());
     }
 }
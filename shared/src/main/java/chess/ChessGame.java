@@ -1,6 +1,6 @@
 package chess;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -16,12 +16,57 @@ public class ChessGame {
     ChessBoard currentBoard;
     boolean isFinished = false;
 
+    /*
+     * Plies since the last capture or pawn move, and the move number as in
+     * FEN. Kept out of the JSON, so games from older JSON start at move 1;
+     * GameCodec stores them.
+     */
+    transient int halfmoveClock = 0;
+    transient int fullmoveNumber = 1;
+
+    /*
+     * Last status computed by getStatus, with the board, position key and team
+     * it was computed for. Cleared by makeMove and setBoard; the key check also
+     * catches changes made directly through getBoard().
+     */
+    private transient GameStatus cachedStatus;
+    private transient TeamColor cachedStatusTeam;
+    private transient ChessBoard cachedStatusBoard;
+    private transient long cachedStatusKey;
+
+    /*
+     * One record per move played by doMove, most recent last. Each record packs
+     * the encoded move in its low 32 bits, then the moved piece's index, the
+     * captured piece's index plus one (0 for none), the turn, the finished
+     * flag and the halfmove clock from before the move. Not serialized, so a
+     * deserialized game starts with no moves to undo.
+     */
+    private static final int INITIAL_UNDO_CAPACITY = 256;
+    private static final int MOVED_SHIFT = 32;
+    private static final int CAPTURED_SHIFT = 36;
+    private static final long BLACK_TO_MOVE_BIT = 1L << 40;
+    private static final long FINISHED_BIT = 1L << 41;
+    private static final int HALFMOVE_SHIFT = 42;
+    private static final int HALFMOVE_MASK = (1 << 22) - 1;
+
+    private transient long[] undoStack;
+    private transient int undoCount;
+
     public ChessGame() {
         currentBoard = new ChessBoard();
         currentBoard.resetBoard();
         currentTurn = TeamColor.WHITE;
     }
 
+    /**
+     * Creates a game in a given position, without setting up the starting
+     * board first
+     */
+    ChessGame(ChessBoard board, TeamColor turn) {
+        currentTurn = turn;
+        setBoard(board);
+    }
+
     public boolean isFinished() {
         return isFinished;
     }
@@ -46,6 +91,29 @@ public class ChessGame {
         currentTurn = team;
     }
 
+    /**
+     * @return plies played since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return the number of the current move, starting at 1 and going up after
+     * each black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -54,6 +122,26 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * The state of one team's position
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    /**
+     * The result of a position with best play from both teams, for the team
+     * whose turn it is
+     */
+    public enum TheoreticalResult {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -62,27 +150,29 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        if (currentBoard.getPiece(startPosition) == null) {
+        ChessPiece piece = currentBoard.getPiece(startPosition);
+        if (piece == null) {
             return null;
         }
-        Collection<ChessMove> availableMoveList = currentBoard.getPiece(startPosition).pieceMoves(currentBoard, startPosition);
-        Collection<ChessMove> validMoveList = new ArrayList<>();
-
-        for (ChessMove move : availableMoveList) {
-            ChessPiece endPositionPieceSave = currentBoard.getPiece(move.getEndPosition());
-
-            currentBoard.addPiece(move.getEndPosition(), currentBoard.getPiece(move.getStartPosition()));
-            currentBoard.addPiece(move.getStartPosition(), null);
-
-            if (!isInCheck(currentBoard.getPiece(move.getEndPosition()).getTeamColor())) {
-                validMoveList.add(move);
-            }
-
-            currentBoard.addPiece(move.getStartPosition(), currentBoard.getPiece(move.getEndPosition()));
-            currentBoard.addPiece(move.getEndPosition(), endPositionPieceSave);    
-        }
+        MoveGenerator.KingSafety safety = MoveGenerator.kingSafety(currentBoard, piece.getTeamColor());
+        long targets = MoveGenerator.legalTargets(currentBoard, Bitboards.square(startPosition),
+                piece.getPieceType(), safety);
+        return piece.toMoves(startPosition, targets);
+    }
 
-        return validMoveList;
+    /**
+     * Gets every valid move for the team whose turn it is, as encoded
+     * {@link Move} ints. Unlike {@link #validMoves} this allocates nothing, so
+     * one buffer can be reused for every position.
+     *
+     * @param moves buffer to fill, with room for {@link Move#MAX_MOVES} moves
+     * @return the number of moves written to the buffer
+     * @throws IllegalArgumentException if the moves do not fit in the buffer,
+     *                                  which needs a board set up with more
+     *                                  pieces than a game can have
+     */
+    public int legalMoves(int[] moves) {
+        return MoveGenerator.legalMoves(currentBoard, currentTurn, moves);
     }
 
     /**
@@ -103,112 +193,112 @@ public class ChessGame {
             throw new InvalidMoveException();
         }
 
-        ChessPiece setPiece = move.getPromotionPiece() == null ? pieceAtPosition : 
-                new ChessPiece(pieceAtPosition.getTeamColor(), move.getPromotionPiece());
-        currentBoard.addPiece(move.getEndPosition(), setPiece);
-        currentBoard.addPiece(move.getStartPosition(), null);
-
-        if (currentTurn == TeamColor.WHITE) {
-            currentTurn = TeamColor.BLACK;
-        } else {
-            currentTurn = TeamColor.WHITE;
-        }
+        doMove(Move.fromChessMove(move, currentBoard));
     }
 
     /**
-     * Determines if the given team is in check
+     * Plays an encoded move without checking that it is valid, and remembers
+     * how to take it back with {@link #undoMove}. The piece on the start square
+     * moves to the end square, replaced by the promotion piece if there is one,
+     * and the turn passes to the other team. Nothing is allocated unless the
+     * undo stack has to grow.
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @param move the move to play, as encoded by {@link Move}
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = getKingPosition(teamColor);
-
-        if (kingPosition.getRow() == 0 && kingPosition.getColumn() == 0) {
-            return false;
+    public void doMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = currentBoard.getPiece(from);
+        ChessPiece captured = currentBoard.getPiece(to);
+
+        long record = move & 0xFFFFFFFFL;
+        record |= (long) Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()) << MOVED_SHIFT;
+        if (captured != null) {
+            record |= (long) (Bitboards.pieceIndex(captured.getTeamColor(), captured.getPieceType()) + 1)
+                    << CAPTURED_SHIFT;
         }
-
-        int[][] slidingDirections = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}, {0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-        for (int[] dir : slidingDirections) {
-            if (checkInDirection(kingPosition, dir[0], dir[1])) {
-                return true;
-            }
+        if (currentTurn == TeamColor.BLACK) {
+            record |= BLACK_TO_MOVE_BIT;
         }
-
-        int[][] knightMoves = {{2, 1}, {1, 2}, {-2, 1}, {-1, 2}, {2, -1}, {1, -2}, {-2, -1}, {-1, -2}};
-        for (int[] move : knightMoves) {
-            if (checkAtPosition(kingPosition, ChessPiece.PieceType.KNIGHT, move[0], move[1])) {
-                return true;
-            }
+        if (isFinished) {
+            record |= FINISHED_BIT;
         }
-
-        int[][] kingMoves = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}, {0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-        for (int[] move : kingMoves) {
-            if (checkAtPosition(kingPosition, ChessPiece.PieceType.KING, move[0], move[1])) {
-                return true;
-            }
+        record |= (long) Math.min(halfmoveClock, HALFMOVE_MASK) << HALFMOVE_SHIFT;
+        if (undoStack == null) {
+            undoStack = new long[INITIAL_UNDO_CAPACITY];
+        } else if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
         }
-
-        int pawnDir = (teamColor == TeamColor.WHITE) ? 1 : -1;
-        return checkAtPosition(kingPosition, ChessPiece.PieceType.PAWN, pawnDir, 1)
-                || checkAtPosition(kingPosition, ChessPiece.PieceType.PAWN, pawnDir, -1);
+        undoStack[undoCount++] = record;
+
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        currentBoard.addPiece(to, promotion == null ? piece : ChessPiece.of(piece.getTeamColor(), promotion));
+        currentBoard.addPiece(from, null);
+        halfmoveClock = captured != null || piece.getPieceType() == ChessPiece.PieceType.PAWN ? 0 : halfmoveClock + 1;
+        if (currentTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        currentTurn = currentTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        cachedStatus = null;
     }
 
-    private boolean checkInDirection(ChessPosition kingPos, int rowShift, int colShift) {
-        int r = kingPos.getRow() + rowShift;
-        int c = kingPos.getColumn() + colShift;
-        TeamColor color = currentBoard.getPiece(kingPos).getTeamColor();
-
-        while (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
-            ChessPiece piece = currentBoard.getPiece(new ChessPosition(r, c));
-            if (piece != null) {
-                if (piece.getTeamColor() != color) {
-                    ChessPiece.PieceType type = piece.getPieceType();
-                    if (type == ChessPiece.PieceType.QUEEN) {
-                        return true;
-                    }
-                    if ((rowShift != 0 && colShift != 0) && type == ChessPiece.PieceType.BISHOP) {
-                        return true;
-                    }
-                    if ((rowShift == 0 || colShift == 0) && type == ChessPiece.PieceType.ROOK) {
-                        return true;
-                    }
-                }
-                break;
-            }
-            r += rowShift;
-            c += colShift;
+    /**
+     * Takes back the last move played by {@link #doMove} or {@link #makeMove},
+     * restoring the board, the turn, the finished flag and the move counters
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void undoMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to undo");
         }
-        return false;
+        long record = undoStack[--undoCount];
+        int move = (int) record;
+        int moved = (int) (record >>> MOVED_SHIFT) & 0xF;
+        int captured = (int) (record >>> CAPTURED_SHIFT) & 0xF;
+
+        currentBoard.addPiece(Move.from(move), ChessPiece.of(Bitboards.colorOf(moved), Bitboards.typeOf(moved)));
+        currentBoard.addPiece(Move.to(move), captured == 0 ? null
+                : ChessPiece.of(Bitboards.colorOf(captured - 1), Bitboards.typeOf(captured - 1)));
+        currentTurn = (record & BLACK_TO_MOVE_BIT) != 0 ? TeamColor.BLACK : TeamColor.WHITE;
+        isFinished = (record & FINISHED_BIT) != 0;
+        halfmoveClock = (int) (record >>> HALFMOVE_SHIFT) & HALFMOVE_MASK;
+        if (currentTurn == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        cachedStatus = null;
     }
 
-    private boolean checkAtPosition(ChessPosition kingPos, ChessPiece.PieceType type, int rowShift, int colShift) {
-        int r = kingPos.getRow() + rowShift;
-        int c = kingPos.getColumn() + colShift;
-
-        if (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
-            ChessPiece piece = currentBoard.getPiece(new ChessPosition(r, c));
-            return piece != null && piece.getTeamColor() != currentBoard.getPiece(kingPos).getTeamColor() 
-                   && piece.getPieceType() == type;
-        }
-        return false;
+    /**
+     * @return how many moves {@link #undoMove} can take back
+     */
+    public int undoDepth() {
+        return undoCount;
     }
 
-    private ChessPosition getKingPosition(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition currentPosition = new ChessPosition(row, col);       
-                ChessPiece pieceAtPosition = currentBoard.getPiece(currentPosition);
-                if (pieceAtPosition != null && pieceAtPosition.getPieceType() == ChessPiece.PieceType.KING
-                        && pieceAtPosition.getTeamColor() == teamColor) {
-                    return currentPosition;
-                }
-            }
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        int king = currentBoard.getKingSquare(teamColor);
+        if (king < 0) {
+            return false;
         }
-
-        return new ChessPosition(0, 0);
+        return MoveGenerator.isSquareAttacked(currentBoard, king, MoveGenerator.opponent(teamColor));
     }
 
+    /**
+     * Determines if the given team is in checkmate
+     *
+     * @param teamColor which team to check for checkmate
+     * @return True if the specified team is in checkmate
+     */
+    public boolean isInCheckmate(TeamColor teamColor) {
+        return getStatus(teamColor) == GameStatus.CHECKMATE;
+    }
 
     /**
      * Determines if the given team is in stalemate, which here is defined as having
@@ -217,25 +307,71 @@ public class ChessGame {
      * @param teamColor which team to check for stalemate
      * @return True if the specified team is in stalemate, otherwise false
      */
-    public boolean isInCheckmate(TeamColor teamColor) {
-        return isInCheck(teamColor) && !hasValidMoves(teamColor);
+    public boolean isInStalemate(TeamColor teamColor) {
+        return getStatus(teamColor) == GameStatus.STALEMATE;
     }
 
-    public boolean isInStalemate(TeamColor teamColor) {
-        return !isInCheck(teamColor) && !hasValidMoves(teamColor);
+    /**
+     * Gets the status of the team whose turn it is
+     *
+     * @return whether that team is in check, checkmate, stalemate or none of them
+     */
+    public GameStatus getStatus() {
+        return getStatus(currentTurn);
+    }
+
+    /**
+     * Works out check and whether any valid move exists in a single pass. The
+     * result is kept until the position changes, so asking again is free.
+     *
+     * @param teamColor which team to get the status of
+     * @return whether that team is in check, checkmate, stalemate or none of them
+     */
+    public GameStatus getStatus(TeamColor teamColor) {
+        long key = currentBoard.positionKey();
+        if (cachedStatus != null && cachedStatusTeam == teamColor && cachedStatusBoard == currentBoard
+                && cachedStatusKey == key) {
+            return cachedStatus;
+        }
+        boolean inCheck = isInCheck(teamColor);
+        boolean canMove = hasValidMoves(teamColor);
+        GameStatus status;
+        if (inCheck) {
+            status = canMove ? GameStatus.CHECK : GameStatus.CHECKMATE;
+        } else {
+            status = canMove ? GameStatus.NORMAL : GameStatus.STALEMATE;
+        }
+        cachedStatus = status;
+        cachedStatusTeam = teamColor;
+        cachedStatusBoard = currentBoard;
+        cachedStatusKey = key;
+        return status;
+    }
+
+    /**
+     * Looks the position up in the process wide {@link Bitbases}. Positions with
+     * few enough pieces are answered exactly, without searching.
+     *
+     * @return whether the team whose turn it is wins, draws or loses with best
+     * play, or null if no installed bitbase covers the position
+     */
+    public TheoreticalResult theoreticalResult() {
+        Bitbases bitbases = Bitbases.installed();
+        if (Long.bitCount(currentBoard.getOccupancy()) > bitbases.maxPieces()) {
+            return null;
+        }
+        return bitbases.probe(currentBoard, currentTurn);
     }
 
     private boolean hasValidMoves(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition pos = new ChessPosition(row, col);
-                ChessPiece piece = currentBoard.getPiece(pos);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> moves = validMoves(pos);
-                    if (moves != null && !moves.isEmpty()) {
-                        return true;
-                    }
-                }
+        MoveGenerator.KingSafety safety = MoveGenerator.kingSafety(currentBoard, teamColor);
+        long pieces = currentBoard.getOccupancy(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece.PieceType type = currentBoard.getPiece(square).getPieceType();
+            if (MoveGenerator.legalTargets(currentBoard, square, type, safety) != 0) {
+                return true;
             }
         }
         return false;
@@ -248,6 +384,23 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         currentBoard = board;
+        cachedStatus = null;
+        undoCount = 0;
+        if (board != null) {
+            board.rebuildBitboards();
+        }
+    }
+
+    /**
+     * Gets the Zobrist key of this game's position, covering the pieces on the
+     * board and the side to move. Suitable for caches, transposition tables and
+     * detecting repeated positions.
+     *
+     * @return 64-bit key of the current position
+     */
+    public long positionKey() {
+        long key = currentBoard == null ? 0 : currentBoard.positionKey();
+        return currentTurn == TeamColor.BLACK ? key ^ Zobrist.side() : key;
     }
 
     /**
@@ -274,6 +427,6 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(currentTurn, currentBoard, isFinished);
+        return 31 * Long.hashCode(positionKey()) + Boolean.hashCode(isFinished);
     }
 }
\ No newline at end of file
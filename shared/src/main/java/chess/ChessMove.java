@@ -9,6 +9,36 @@ import java.util.Objects;
  */
 public class ChessMove {
 
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
+    /*
+     * Shared instances of every move a piece can make, indexed by
+     * (from * 64 + to) * (PIECE_TYPES.length + 1) + promotion, where promotion
+     * is 0 for none or the promotion type's ordinal plus one. Only pairs of
+     * squares on a queen or knight line are filled, and promotions only to the
+     * first and last ranks.
+     */
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64 * (PIECE_TYPES.length + 1)];
+
+    static {
+        long lastRanks = Bitboards.RANK_1 | Bitboards.RANK_8;
+        for (int from = 0; from < 64; from++) {
+            long targets = AttackTables.queenAttacks(from, 0) | AttackTables.knightAttacks(from);
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int index = (from * 64 + to) * (PIECE_TYPES.length + 1);
+                MOVES[index] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), null);
+                if ((Bitboards.bit(to) & lastRanks) != 0) {
+                    for (ChessPiece.PieceType type : PIECE_TYPES) {
+                        MOVES[index + type.ordinal() + 1] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to),
+                                type);
+                    }
+                }
+            }
+        }
+    }
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -20,6 +50,35 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Gets the shared move between two squares. Moves are immutable, so code
+     * that makes many of them should use this rather than the constructor.
+     *
+     * @return the shared move, or a new move if it is not one any piece can make
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!onBoard(startPosition) || !onBoard(endPosition)) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        return of(Bitboards.square(startPosition), Bitboards.square(endPosition), promotionPiece);
+    }
+
+    /**
+     * @return the shared move between two square indexes
+     */
+    static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        int index = (from * 64 + to) * (PIECE_TYPES.length + 1)
+                + (promotionPiece == null ? 0 : promotionPiece.ordinal() + 1);
+        ChessMove move = MOVES[index];
+        return move != null ? move : new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotionPiece);
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -66,6 +125,10 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        // same value as Objects.hash(startPosition, endPosition, promotionPiece),
+        // without the varargs array
+        int result = 31 + Objects.hashCode(startPosition);
+        result = 31 * result + Objects.hashCode(endPosition);
+        return 31 * result + Objects.hashCode(promotionPiece);
     }
 }
@@ -13,6 +13,14 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    private static final ChessPiece[] PIECES = new ChessPiece[Bitboards.PIECE_COUNT];
+
+    static {
+        for (int index = 0; index < PIECES.length; index++) {
+            PIECES[index] = new ChessPiece(Bitboards.colorOf(index), Bitboards.typeOf(index));
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,6 +28,14 @@ public class ChessPiece {
         this.pieceColor = pieceColor;
         this.type = type;
     }
+
+    /**
+     * Gets the shared piece of a color and type. Pieces are immutable, so code
+     * that makes many of them should use this rather than the constructor.
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[Bitboards.pieceIndex(pieceColor, type)];
+    }
     /**
      * The various different chess piece options
      */
@@ -54,160 +70,39 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        List<ChessMove> moves = new ArrayList<>();
-
-        switch (type) {
-            case KING:
-                // diagonal single move
-                singleMoveInDirection(moves, board, myPosition, 1, 1);
-                singleMoveInDirection(moves, board, myPosition, 1, -1);
-                singleMoveInDirection(moves, board, myPosition, -1, 1);
-                singleMoveInDirection(moves, board, myPosition, -1, -1);
-                // cross single move
-                singleMoveInDirection(moves, board, myPosition, 0, 1);
-                singleMoveInDirection(moves, board, myPosition, 0, -1);
-                singleMoveInDirection(moves, board, myPosition, 1, 0);
-                singleMoveInDirection(moves, board, myPosition, -1, 0);
-                break;
-            case QUEEN:
-                // diagonal moves
-                addMovesInDirection(moves, board, myPosition, 1, 1);
-                addMovesInDirection(moves, board, myPosition, 1, -1);
-                addMovesInDirection(moves, board, myPosition, -1, 1);
-                addMovesInDirection(moves, board, myPosition, -1, -1);
-                // cross moves
-                addMovesInDirection(moves, board, myPosition, 0, 1);
-                addMovesInDirection(moves, board, myPosition, 0, -1);
-                addMovesInDirection(moves, board, myPosition, 1, 0);
-                addMovesInDirection(moves, board, myPosition, -1, 0);
-                break;
-            case BISHOP:
-                // diagonal moves
-                addMovesInDirection(moves, board, myPosition, 1, 1);
-                addMovesInDirection(moves, board, myPosition, 1, -1);
-                addMovesInDirection(moves, board, myPosition, -1, 1);
-                addMovesInDirection(moves, board, myPosition, -1, -1);
-                break;
-            case ROOK:
-                // cross moves
-                addMovesInDirection(moves, board, myPosition, 0, 1);
-                addMovesInDirection(moves, board, myPosition, 0, -1);
-                addMovesInDirection(moves, board, myPosition, 1, 0);
-                addMovesInDirection(moves, board, myPosition, -1, 0);
-                break;
-            case KNIGHT:
-                singleMoveInDirection(moves, board, myPosition, 2, 1);
-                singleMoveInDirection(moves, board, myPosition, 2, -1);
-                singleMoveInDirection(moves, board, myPosition, -2, 1);
-                singleMoveInDirection(moves, board, myPosition, -2, -1);
-                singleMoveInDirection(moves, board, myPosition, 1, 2);
-                singleMoveInDirection(moves, board, myPosition, 1, -2);
-                singleMoveInDirection(moves, board, myPosition, -1, 2);
-                singleMoveInDirection(moves, board, myPosition, -1, -2);
-                break;
-            case PAWN:
-                pawnMoves(moves, board, myPosition);
-                break;
-        }
-        return moves;
+        long targets = MoveGenerator.pseudoLegalTargets(board, Bitboards.square(myPosition), pieceColor, type);
+        return toMoves(myPosition, targets);
     }
 
-    private void pawnMoves(Collection<ChessMove> moves, ChessBoard board, ChessPosition myPosition) {
-        int direction = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int startRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
-        int currentRow = myPosition.getRow();
-        int currentCol = myPosition.getColumn();
-
-        ChessPosition oneStep = new ChessPosition(currentRow + direction, currentCol);
-        if (oneStep.getRow() >= 1 && oneStep.getRow() <= 8) {
-            if (board.getPiece(oneStep) == null) {
-                if (oneStep.getRow() == promotionRow) {
-                    addPromotionMoves(moves, myPosition, oneStep);
-                } else {
-                    moves.add(new ChessMove(myPosition, oneStep, null));
-                }
-
-                if (currentRow == startRow) {
-                    ChessPosition twoStep = new ChessPosition(currentRow + 2 * direction, currentCol);
-                    if (board.getPiece(twoStep) == null) {
-                        moves.add(new ChessMove(myPosition, twoStep, null));
-                    }
-                }
-            }
-        }
-
-        int[] captureCols = {currentCol - 1, currentCol + 1};
-        for (int captureCol : captureCols) {
-            if (captureCol < 1 || captureCol > 8) {
-                continue;
-            }
-            ChessPosition capturePos = new ChessPosition(currentRow + direction, captureCol);
-            if (capturePos.getRow() < 1 || capturePos.getRow() > 8) {
-                continue;
-            }
-            ChessPiece targetPiece = board.getPiece(capturePos);
-            if (targetPiece != null && targetPiece.getTeamColor() != pieceColor) {
-                if (capturePos.getRow() == promotionRow) {
-                    addPromotionMoves(moves, myPosition, capturePos);
-                } else {
-                    moves.add(new ChessMove(myPosition, capturePos, null));
-                }
+    /**
+     * Turns a bitboard of target squares for this piece into moves, with one
+     * move per promotion choice when a pawn reaches the last rank
+     */
+    Collection<ChessMove> toMoves(ChessPosition myPosition, long targets) {
+        List<ChessMove> moves = new ArrayList<>(Long.bitCount(targets));
+        int from = Bitboards.square(myPosition);
+        if (type == PieceType.PAWN) {
+            long promotions = targets & MoveGenerator.promotionRank(pieceColor);
+            targets &= ~promotions;
+            while (promotions != 0) {
+                int to = Long.numberOfTrailingZeros(promotions);
+                promotions &= promotions - 1;
+                addPromotionMoves(moves, from, to);
             }
         }
-    }
-
-    private void addPromotionMoves(Collection<ChessMove> moves, ChessPosition start, ChessPosition end) {
-        moves.add(new ChessMove(start, end, PieceType.QUEEN));
-        moves.add(new ChessMove(start, end, PieceType.ROOK));
-        moves.add(new ChessMove(start, end, PieceType.BISHOP));
-        moves.add(new ChessMove(start, end, PieceType.KNIGHT));
-    }
-
-    private void singleMoveInDirection(Collection<ChessMove> moves, ChessBoard board, ChessPosition startPosition, int rowShift, int colShift) {
-        int checkRow = startPosition.getRow() + rowShift;
-        int checkCol = startPosition.getColumn() + colShift;
-
-        if (checkRow < 1 || checkRow > 8 || checkCol < 1 || checkCol > 8) {
-            return;
-        }
-
-        ChessPosition newPosition = new ChessPosition(checkRow, checkCol);
-        ChessPiece pieceAtPosition = board.getPiece(newPosition);
-
-        if (pieceAtPosition == null) {
-            moves.add(new ChessMove(startPosition, newPosition, null));
-        } else {
-            if (pieceAtPosition.getTeamColor() != this.pieceColor) {
-                moves.add(new ChessMove(startPosition, newPosition, null));
-            }
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(ChessMove.of(from, to, null));
         }
+        return moves;
     }
 
-    private void addMovesInDirection(Collection<ChessMove> moves, ChessBoard board, ChessPosition startPosition, int rowShift, int colShift) {
-        int currentRow = startPosition.getRow();
-        int currentCol = startPosition.getColumn();
-
-        while (true) {
-            currentRow += rowShift;
-            currentCol += colShift;
-
-            if (currentRow < 1 || currentRow > 8 || currentCol < 1 || currentCol > 8) {
-                break;
-            }
-
-            ChessPosition newPosition = new ChessPosition(currentRow, currentCol);
-            ChessPiece pieceAtPosition = board.getPiece(newPosition);
-
-            if (pieceAtPosition == null) {
-                moves.add(new ChessMove(startPosition, newPosition, null));
-            } else {
-                if (pieceAtPosition.getTeamColor() != this.pieceColor) {
-                    moves.add(new ChessMove(startPosition, newPosition, null));
-                }
-                break;
-            }
-        }
+    private void addPromotionMoves(Collection<ChessMove> moves, int from, int to) {
+        moves.add(ChessMove.of(from, to, PieceType.QUEEN));
+        moves.add(ChessMove.of(from, to, PieceType.ROOK));
+        moves.add(ChessMove.of(from, to, PieceType.BISHOP));
+        moves.add(ChessMove.of(from, to, PieceType.KNIGHT));
     }
 
     @Override
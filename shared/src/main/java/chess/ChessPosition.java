@@ -1,6 +1,5 @@
 package chess;
 
-import java.util.Objects;
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -9,6 +8,15 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    /* One shared instance per square, indexed by (row - 1) * 8 + (col - 1) */
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -17,6 +25,27 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared position for a square. Positions are immutable, so code
+     * that makes many of them should use this rather than the constructor.
+     *
+     * @return the shared position for squares on the board, or a new position
+     * for coordinates off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[(row - 1) * 8 + (col - 1)];
+    }
+
+    /**
+     * @return the shared position for a square index
+     */
+    static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -53,6 +82,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        // same value as Objects.hash(row, col), without boxing
+        return 31 * (31 + row) + col;
     }
 }
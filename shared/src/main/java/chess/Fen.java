@@ -0,0 +1,289 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * A FEN record has six fields separated by spaces: piece placement from the
+ * eighth rank down, the side to move, castling rights, the en passant square,
+ * the halfmove clock and the fullmove number. Castling and en passant are not
+ * part of this game's rules, so those fields are checked and then ignored when
+ * reading, and always written as {@code -}. The last four fields may be left
+ * off when reading, in which case they default to no rights, no square, 0
+ * and 1.
+ * <p>
+ * Parsing walks the text one character at a time, without regular expressions
+ * or splitting it into strings.
+ */
+public final class Fen {
+
+    /**
+     * The starting position
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * Reads a FEN record into a new game
+     *
+     * @param fen the record to read
+     * @return a game in that position, with its move counters set
+     * @throws IllegalArgumentException if the record is not valid FEN
+     */
+    public static ChessGame parse(CharSequence fen) {
+        Cursor cursor = new Cursor(fen);
+        ChessBoard board = parsePlacement(cursor);
+        ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if (cursor.field()) {
+            turn = switch (cursor.next()) {
+                case 'w' -> ChessGame.TeamColor.WHITE;
+                case 'b' -> ChessGame.TeamColor.BLACK;
+                default -> throw cursor.error("side to move must be w or b");
+            };
+            cursor.endField();
+        }
+        if (cursor.field()) {
+            skipCastling(cursor);
+        }
+        if (cursor.field()) {
+            skipEnPassant(cursor);
+        }
+        if (cursor.field()) {
+            halfmoveClock = cursor.number();
+        }
+        if (cursor.field()) {
+            fullmoveNumber = cursor.number();
+            if (fullmoveNumber < 1) {
+                throw cursor.error("fullmove number must be at least 1");
+            }
+        }
+        if (cursor.field()) {
+            throw cursor.error("too many fields");
+        }
+
+        ChessGame game = new ChessGame(board, turn);
+        game.setHalfmoveClock(halfmoveClock);
+        game.setFullmoveNumber(fullmoveNumber);
+        return game;
+    }
+
+    /**
+     * Reads the piece placement field of a FEN record
+     *
+     * @param placement the placement, such as {@code 8/8/8/8/8/8/8/K6k}, which
+     *                  may be followed by the rest of the record
+     * @return a board with those pieces
+     * @throws IllegalArgumentException if the placement is not valid FEN
+     */
+    public static ChessBoard parseBoard(CharSequence placement) {
+        return parsePlacement(new Cursor(placement));
+    }
+
+    /**
+     * Writes a game as a FEN record
+     *
+     * @param game the game to write
+     * @return the game's position, side to move and move counters
+     */
+    public static String format(ChessGame game) {
+        StringBuilder sb = new StringBuilder(90);
+        appendPlacement(sb, game.getBoard());
+        sb.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w - - " : " b - - ");
+        sb.append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+        return sb.toString();
+    }
+
+    /**
+     * Writes the piece placement field of a FEN record
+     *
+     * @param board the board to write
+     * @return the placement, eighth rank first
+     */
+    public static String formatBoard(ChessBoard board) {
+        StringBuilder sb = new StringBuilder(72);
+        appendPlacement(sb, board);
+        return sb.toString();
+    }
+
+    private static void appendPlacement(StringBuilder sb, ChessBoard board) {
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = board.getPiece(row * 8 + col);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                sb.append(letter(piece));
+            }
+            if (empty > 0) {
+                sb.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                sb.append('/');
+            }
+        }
+    }
+
+    private static ChessBoard parsePlacement(Cursor cursor) {
+        if (!cursor.field()) {
+            throw cursor.error("missing piece placement");
+        }
+        ChessBoard board = new ChessBoard();
+        int row = 7;
+        int col = 0;
+        while (cursor.hasNext() && cursor.peek() != ' ') {
+            char c = cursor.next();
+            if (c == '/') {
+                if (col != 8 || row == 0) {
+                    throw cursor.error("rank " + (row + 1) + " does not have 8 squares");
+                }
+                row--;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 8) {
+                    throw cursor.error("rank " + (row + 1) + " has more than 8 squares");
+                }
+            } else {
+                if (col >= 8) {
+                    throw cursor.error("rank " + (row + 1) + " has more than 8 squares");
+                }
+                board.addPiece(row * 8 + col, piece(c, cursor));
+                col++;
+            }
+        }
+        if (row != 0 || col != 8) {
+            throw cursor.error("placement must have 8 ranks of 8 squares");
+        }
+        return board;
+    }
+
+    private static void skipCastling(Cursor cursor) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+        } else {
+            while (cursor.hasNext() && cursor.peek() != ' ') {
+                char c = cursor.next();
+                if (c != 'K' && c != 'Q' && c != 'k' && c != 'q') {
+                    throw cursor.error("castling rights must be - or letters from KQkq");
+                }
+            }
+        }
+        cursor.endField();
+    }
+
+    private static void skipEnPassant(Cursor cursor) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+        } else {
+            char file = cursor.next();
+            char rank = cursor.hasNext() ? cursor.next() : ' ';
+            if (file < 'a' || file > 'h' || rank != '3' && rank != '6') {
+                throw cursor.error("en passant square must be - or a square on rank 3 or 6");
+            }
+        }
+        cursor.endField();
+    }
+
+    private static ChessPiece piece(char c, Cursor cursor) {
+        ChessGame.TeamColor color = c >= 'a' ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        ChessPiece.PieceType type = switch (c) {
+            case 'K', 'k' -> ChessPiece.PieceType.KING;
+            case 'Q', 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'R', 'r' -> ChessPiece.PieceType.ROOK;
+            case 'B', 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'N', 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'P', 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw cursor.error("unknown piece '" + c + "'");
+        };
+        return ChessPiece.of(color, type);
+    }
+
+    private static char letter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case ROOK -> 'R';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case PAWN -> 'P';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? letter : (char) (letter + ('a' - 'A'));
+    }
+
+    /*
+     * Position in the text being read
+     */
+    private static final class Cursor {
+        private final CharSequence text;
+        private int index;
+
+        Cursor(CharSequence text) {
+            this.text = text;
+            skipSpaces();
+        }
+
+        boolean hasNext() {
+            return index < text.length();
+        }
+
+        char peek() {
+            return text.charAt(index);
+        }
+
+        char next() {
+            if (!hasNext()) {
+                throw error("record ends too soon");
+            }
+            return text.charAt(index++);
+        }
+
+        /*
+         * True if another field follows, after skipping the spaces before it
+         */
+        boolean field() {
+            skipSpaces();
+            return hasNext();
+        }
+
+        void endField() {
+            if (hasNext() && peek() != ' ') {
+                throw error("unexpected '" + peek() + "'");
+            }
+        }
+
+        int number() {
+            long value = 0;
+            int start = index;
+            while (hasNext() && peek() >= '0' && peek() <= '9') {
+                value = value * 10 + (next() - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw error("number is too large");
+                }
+            }
+            if (index == start) {
+                throw error("expected a number");
+            }
+            endField();
+            return (int) value;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid FEN at index " + index + ": " + message + ": " + text);
+        }
+
+        private void skipSpaces() {
+            while (hasNext() && peek() == ' ') {
+                index++;
+            }
+        }
+    }
+}
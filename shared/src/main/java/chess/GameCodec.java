@@ -0,0 +1,129 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Reads and writes games in a compact, versioned binary form for storage.
+ * <p>
+ * A record starts with a version byte, followed by the 64 squares at four bits
+ * each, in square index order from a1, two to a byte with the lower square in
+ * the low nibble. A nibble of 0 is an empty square, otherwise it is the piece's
+ * {@link Bitboards#pieceIndex} plus one. A state byte follows with the side to
+ * move in bit 0 and the finished flag in bit 1, then the halfmove clock and
+ * fullmove number as unsigned variable length integers, seven bits to a byte.
+ * Games take 36 bytes until the fullmove number passes 127.
+ * <p>
+ * Like the JSON form this replaces, a record holds the position and not the
+ * moves that led to it, so a decoded game has no moves to undo.
+ */
+public final class GameCodec {
+
+    /**
+     * Version written as the first byte of each record
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Largest size of an encoded game in bytes
+     */
+    public static final int MAX_BYTES = 1 + 32 + 1 + 5 + 5;
+
+    private static final int BOARD_BYTES = 32;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int FINISHED = 2;
+
+    private GameCodec() {
+    }
+
+    /**
+     * @param game the game to write
+     * @return the game's position, side to move, finished flag and move counters
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] buffer = new byte[MAX_BYTES];
+        buffer[0] = VERSION;
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                int nibble = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()) + 1;
+                buffer[1 + (square >>> 1)] |= (byte) (nibble << ((square & 1) << 2));
+            }
+        }
+        int state = game.getTeamTurn() == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0;
+        if (game.isFinished()) {
+            state |= FINISHED;
+        }
+        int length = 1 + BOARD_BYTES;
+        buffer[length++] = (byte) state;
+        length = writeVarint(buffer, length, game.getHalfmoveClock());
+        length = writeVarint(buffer, length, game.getFullmoveNumber());
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * @param bytes a record written by {@link #encode}
+     * @return a new game in the recorded state
+     * @throws IllegalArgumentException if the record is truncated, malformed or
+     *                                  from an unknown version
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length < 1 + BOARD_BYTES + 1) {
+            throw new IllegalArgumentException("Game record is too short: " + bytes.length + " bytes");
+        }
+        if (bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unknown game record version " + bytes[0]);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int nibble = bytes[1 + (square >>> 1)] >>> ((square & 1) << 2) & 0xF;
+            if (nibble > Bitboards.PIECE_COUNT) {
+                throw new IllegalArgumentException("Unknown piece " + nibble + " on square " + square);
+            }
+            if (nibble != 0) {
+                board.addPiece(square, ChessPiece.of(Bitboards.colorOf(nibble - 1), Bitboards.typeOf(nibble - 1)));
+            }
+        }
+        int state = bytes[1 + BOARD_BYTES];
+        if ((state & ~(BLACK_TO_MOVE | FINISHED)) != 0) {
+            throw new IllegalArgumentException("Unknown game state flags " + state);
+        }
+        int[] cursor = {2 + BOARD_BYTES};
+        int halfmoveClock = readVarint(bytes, cursor);
+        int fullmoveNumber = readVarint(bytes, cursor);
+        if (cursor[0] != bytes.length) {
+            throw new IllegalArgumentException("Game record has " + (bytes.length - cursor[0]) + " extra bytes");
+        }
+
+        ChessGame game = new ChessGame(board,
+                (state & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setFinished((state & FINISHED) != 0);
+        game.setHalfmoveClock(halfmoveClock);
+        game.setFullmoveNumber(fullmoveNumber);
+        return game;
+    }
+
+    private static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarint(byte[] bytes, int[] cursor) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (cursor[0] >= bytes.length) {
+                throw new IllegalArgumentException("Game record ends too soon");
+            }
+            int b = bytes[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Game record has a counter longer than 5 bytes");
+    }
+}
@@ -0,0 +1,148 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * The layout of one set of pieces in a {@link Bitbase}.
+ * <p>
+ * A material signature lists the stronger side's king and pieces, then the
+ * other side's, such as {@code KQKR} or {@code KRPK}. The stronger side has
+ * more pieces, or the stronger first piece in the order Q, R, B, N, P, and is
+ * always stored as white. A position where black is stronger is flipped:
+ * colors swap, ranks mirror and the side to move swaps with them, which
+ * changes nothing about who wins.
+ * <p>
+ * A table's slots follow its signature, and its index is the side to move
+ * followed by six bits for the square of each slot in turn.
+ */
+final class Material {
+
+    /* Piece types in the order they are listed in a signature */
+    private static final ChessPiece.PieceType[] ORDER = {ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN};
+    private static final String LETTERS = "KQRBNP";
+    private static final int[] RANKS = new int[ORDER.length];
+
+    static {
+        for (int rank = 0; rank < ORDER.length; rank++) {
+            RANKS[ORDER[rank].ordinal()] = rank;
+        }
+    }
+
+    /**
+     * The canonical signature of the pieces
+     */
+    final String signature;
+
+    /**
+     * True if the pieces' colors are swapped in the table
+     */
+    final boolean flipped;
+
+    /**
+     * For each slot of the table, the index of the piece that fills it
+     */
+    final int[] order;
+
+    private Material(String signature, boolean flipped, int[] order) {
+        this.signature = signature;
+        this.flipped = flipped;
+        this.order = order;
+    }
+
+    /**
+     * Works out where a set of pieces is stored
+     *
+     * @param pieces each piece's {@link Bitboards#pieceIndex}, in any order
+     * @param count  the number of pieces
+     * @return the pieces' layout, or null if either side does not have exactly
+     * one king
+     */
+    static Material of(int[] pieces, int count) {
+        int[] kings = new int[2];
+        long[] strength = new long[2];
+        int[] sizes = new int[2];
+        for (int i = 0; i < count; i++) {
+            int color = Bitboards.colorOf(pieces[i]).ordinal();
+            int rank = RANKS[Bitboards.typeOf(pieces[i]).ordinal()];
+            if (rank == 0) {
+                kings[color]++;
+            }
+            sizes[color]++;
+            // one count per rank, strongest in the highest bits, so comparing
+            // as numbers compares piece by piece
+            strength[color] += 1L << (8 * (ORDER.length - 1 - rank));
+        }
+        if (kings[0] != 1 || kings[1] != 1) {
+            return null;
+        }
+        boolean flipped = sizes[1] > sizes[0] || sizes[1] == sizes[0] && strength[1] > strength[0];
+
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int color = Bitboards.colorOf(pieces[i]).ordinal() ^ (flipped ? 1 : 0);
+            int rank = RANKS[Bitboards.typeOf(pieces[i]).ordinal()];
+            keys[i] = (color * ORDER.length + rank) << 8 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        StringBuilder signature = new StringBuilder(count);
+        for (int slot = 0; slot < count; slot++) {
+            order[slot] = keys[slot] & 0xFF;
+            signature.append(LETTERS.charAt((keys[slot] >>> 8) % ORDER.length));
+        }
+        return new Material(signature.toString(), flipped, order);
+    }
+
+    /**
+     * Reads the pieces of a signature
+     *
+     * @param signature a material signature
+     * @return each slot's {@link Bitboards#pieceIndex}
+     * @throws IllegalArgumentException if the signature is not canonical
+     */
+    static int[] parse(String signature) {
+        int[] pieces = new int[signature.length()];
+        int color = -1;
+        for (int i = 0; i < pieces.length; i++) {
+            int rank = LETTERS.indexOf(signature.charAt(i));
+            if (rank < 0) {
+                throw new IllegalArgumentException("Unknown piece in material " + signature);
+            }
+            if (rank == 0) {
+                color++;
+            }
+            if (color < 0 || color > 1) {
+                throw new IllegalArgumentException("Material must have one king per side: " + signature);
+            }
+            pieces[i] = Bitboards.pieceIndex(ChessGame.TeamColor.values()[color], ORDER[rank]);
+        }
+        Material material = of(pieces, pieces.length);
+        if (material == null || !material.signature.equals(signature)) {
+            throw new IllegalArgumentException("Material is not in canonical order: " + signature);
+        }
+        return pieces;
+    }
+
+    /**
+     * @param squares     each piece's square, in the order given to {@link #of}
+     * @param whiteToMove true if white is to move on the real board
+     * @return the position's index in the table
+     */
+    int index(int[] squares, boolean whiteToMove) {
+        int index = whiteToMove != flipped ? 0 : 1;
+        for (int piece : order) {
+            index = index << 6 | (flipped ? squares[piece] ^ 56 : squares[piece]);
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of positions in a table of this many pieces, for both
+     * sides to move
+     */
+    static long positions(int pieceCount) {
+        return 2L << (6 * pieceCount);
+    }
+}
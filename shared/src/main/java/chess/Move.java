@@ -0,0 +1,150 @@
+package chess;
+
+/**
+ * Encodes a chess move as a single int, for code that handles many moves and
+ * cannot afford an object for each one.
+ * <p>
+ * Bits 0-5 hold the square index moved from and bits 6-11 the square index
+ * moved to. Bits 12-14 hold the promotion piece type's ordinal plus one, or 0
+ * for no promotion. The remaining flags describe the move on the board it was
+ * generated for. {@link #NONE} is never a real move, since no move starts and
+ * ends on the same square.
+ */
+public final class Move {
+
+    /**
+     * Placeholder for "no move"
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Set when the move takes an opponent's piece
+     */
+    public static final int CAPTURE = 1 << 15;
+
+    /**
+     * Set when a pawn moves two squares from its starting rank
+     */
+    public static final int DOUBLE_PUSH = 1 << 16;
+
+    /**
+     * Enough room for every legal move in any position reachable from the
+     * starting position, which has at most 218. Boards set up with
+     * {@link ChessBoard#addPiece} can have more, such as a ring of queens
+     * around the edge with 288, and generating their moves into a buffer of
+     * this size throws {@link IllegalArgumentException}.
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * @param promotion the piece type to promote to, or null
+     * @param flags     any of {@link #CAPTURE} and {@link #DOUBLE_PUSH}
+     * @return the encoded move
+     */
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | to << 6 | promotionBits << PROMOTION_SHIFT | flags;
+    }
+
+    /**
+     * @return the square index the move starts from
+     */
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * @return the square index the move ends on
+     */
+    public static int to(int move) {
+        return (move >>> 6) & SQUARE_MASK;
+    }
+
+    /**
+     * @return the piece type a pawn promotes to, or null if the move is not a
+     * promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int bits = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return bits == 0 ? null : TYPES[bits - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    /**
+     * @return true if both moves go between the same squares with the same
+     * promotion, whatever their flags
+     */
+    public static boolean sameMove(int first, int second) {
+        return (first & MOVE_MASK) == (second & MOVE_MASK);
+    }
+
+    /**
+     * @return the shared {@link ChessMove} for an encoded move
+     */
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(from(move), to(move), promotion(move));
+    }
+
+    /**
+     * Encodes a move, setting its flags from the board it is played on
+     *
+     * @param move  the move to encode
+     * @param board the board before the move is made
+     * @return the encoded move
+     */
+    public static int fromChessMove(ChessMove move, ChessBoard board) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        ChessPiece piece = board.getPiece(from);
+        ChessPiece target = board.getPiece(to);
+        int flags = 0;
+        if (piece != null && target != null && target.getTeamColor() != piece.getTeamColor()) {
+            flags |= CAPTURE;
+        }
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+            flags |= DOUBLE_PUSH;
+        }
+        return encode(from, to, move.getPromotionPiece(), flags);
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            sb.append(switch (promotion) {
+                case QUEEN -> 'q';
+                case ROOK -> 'r';
+                case BISHOP -> 'b';
+                case KNIGHT -> 'n';
+                case KING -> 'k';
+                case PAWN -> 'p';
+            });
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
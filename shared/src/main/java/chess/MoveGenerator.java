@@ -0,0 +1,306 @@
+package chess;
+
+/**
+ * Bitboard move generation on top of {@link AttackTables}.
+ * <p>
+ * Moves are produced as target bitboards: every set bit is a square the piece
+ * can move to. {@link #pseudoLegalTargets} matches {@link ChessPiece#pieceMoves}
+ * and does not account for leaving the king in danger. {@link #legalTargets}
+ * removes those moves using the checks and pins found by {@link #kingSafety},
+ * without playing any move on the board.
+ */
+public final class MoveGenerator {
+
+    private static final long ALL = ~0L;
+
+    /**
+     * What a color's king needs from the rest of its pieces in one position
+     *
+     * @param color      the color whose moves are restricted
+     * @param kingSquare square index of the king, or -1 if the color has no king
+     * @param checkMask  squares a non-king move must end on: the checking piece
+     *                   and the squares between it and the king, every square
+     *                   when not in check, or none in double check
+     * @param pinned     pieces that may only move along the line to their king
+     * @param kingDanger squares the king may not move to
+     * @param simulate   true if the color has more than one king, in which case
+     *                   moves are checked by playing them instead
+     */
+    public record KingSafety(ChessGame.TeamColor color, int kingSquare, long checkMask, long pinned,
+                             long kingDanger, boolean simulate) {
+    }
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Finds the checks and pins against a color's king
+     *
+     * @param board the board to look at
+     * @param color the color whose king to look at
+     * @return the restrictions on that color's moves
+     */
+    public static KingSafety kingSafety(ChessBoard board, ChessGame.TeamColor color) {
+        int king = board.getKingSquare(color);
+        if (king < 0) {
+            // without a king nothing can be left in check
+            return new KingSafety(color, -1, ALL, 0, 0, false);
+        }
+        if (Long.bitCount(board.getBitboard(color, ChessPiece.PieceType.KING)) > 1) {
+            return new KingSafety(color, king, ALL, 0, 0, true);
+        }
+
+        ChessGame.TeamColor attacker = opponent(color);
+        long occupied = board.getOccupancy();
+        long checkers = attackersOf(board, king, attacker, occupied);
+        long checkMask;
+        if (checkers == 0) {
+            checkMask = ALL;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | AttackTables.between(king, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = 0;
+        }
+
+        long queens = board.getBitboard(attacker, ChessPiece.PieceType.QUEEN);
+        long snipers = (AttackTables.rookAttacks(king, 0)
+                & (board.getBitboard(attacker, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishopAttacks(king, 0)
+                & (board.getBitboard(attacker, ChessPiece.PieceType.BISHOP) | queens));
+        long own = board.getOccupancy(color);
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = AttackTables.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+
+        // the king must not hide behind itself from a slider
+        long kingDanger = attackedSquares(board, attacker, occupied & ~Bitboards.bit(king));
+        return new KingSafety(color, king, checkMask, pinned, kingDanger, false);
+    }
+
+    /**
+     * Calculates the squares a piece can legally move to from a square
+     *
+     * @param board  the board the piece is on
+     * @param from   the square index the piece moves from
+     * @param type   the type of the moving piece
+     * @param safety the restrictions on the moving piece's color, from
+     *               {@link #kingSafety} on the same board
+     * @return bitboard of target squares that do not leave the king in check
+     */
+    public static long legalTargets(ChessBoard board, int from, ChessPiece.PieceType type, KingSafety safety) {
+        long targets = pseudoLegalTargets(board, from, safety.color(), type);
+        if (safety.simulate()) {
+            return simulatedTargets(board, from, safety.color(), targets);
+        }
+        if (safety.kingSquare() < 0) {
+            return targets;
+        }
+        if (from == safety.kingSquare()) {
+            return targets & ~safety.kingDanger();
+        }
+        targets &= safety.checkMask();
+        if ((safety.pinned() & Bitboards.bit(from)) != 0) {
+            targets &= AttackTables.line(safety.kingSquare(), from);
+        }
+        return targets;
+    }
+
+    /**
+     * Writes every legal move for one color into a buffer as encoded
+     * {@link Move} ints, without allocating
+     *
+     * @param board the board to generate moves on
+     * @param color the color to move
+     * @param moves the buffer to fill, with room for {@link Move#MAX_MOVES}
+     * @return the number of moves written
+     * @throws IllegalArgumentException if the moves do not fit in the buffer
+     */
+    public static int legalMoves(ChessBoard board, ChessGame.TeamColor color, int[] moves) {
+        return generate(board, color, moves, false);
+    }
+
+    /**
+     * Writes the legal captures and promotions for one color into a buffer, for
+     * searches that only look at moves that change the material balance
+     *
+     * @param board the board to generate moves on
+     * @param color the color to move
+     * @param moves the buffer to fill, with room for {@link Move#MAX_MOVES}
+     * @return the number of moves written
+     * @throws IllegalArgumentException if the moves do not fit in the buffer
+     */
+    public static int legalCaptures(ChessBoard board, ChessGame.TeamColor color, int[] moves) {
+        return generate(board, color, moves, true);
+    }
+
+    private static int generate(ChessBoard board, ChessGame.TeamColor color, int[] moves, boolean capturesOnly) {
+        KingSafety safety = kingSafety(board, color);
+        long enemies = board.getOccupancy(opponent(color));
+        long promotionRank = promotionRank(color);
+        int count = 0;
+        long pieces = board.getOccupancy(color);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+            long targets = legalTargets(board, from, type, safety);
+            boolean pawn = type == ChessPiece.PieceType.PAWN;
+            if (capturesOnly) {
+                targets &= pawn ? enemies | promotionRank : enemies;
+            }
+            int needed = Long.bitCount(targets) + (pawn ? 3 * Long.bitCount(targets & promotionRank) : 0);
+            if (count + needed > moves.length) {
+                throw new IllegalArgumentException("Position has more legal moves than the buffer of "
+                        + moves.length + " holds");
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                long bit = Bitboards.bit(to);
+                int flags = (bit & enemies) != 0 ? Move.CAPTURE : 0;
+                if (pawn && (bit & promotionRank) != 0) {
+                    moves[count++] = Move.encode(from, to, ChessPiece.PieceType.QUEEN, flags);
+                    moves[count++] = Move.encode(from, to, ChessPiece.PieceType.ROOK, flags);
+                    moves[count++] = Move.encode(from, to, ChessPiece.PieceType.BISHOP, flags);
+                    moves[count++] = Move.encode(from, to, ChessPiece.PieceType.KNIGHT, flags);
+                } else {
+                    if (pawn && Math.abs(to - from) == 16) {
+                        flags |= Move.DOUBLE_PUSH;
+                    }
+                    moves[count++] = Move.encode(from, to, null, flags);
+                }
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Plays each target on the board and tests the lowest king, as a
+     * row by row king search would. Only used when a color has several kings.
+     */
+    private static long simulatedTargets(ChessBoard board, int from, ChessGame.TeamColor color, long targets) {
+        ChessPiece piece = board.getPiece(from);
+        ChessGame.TeamColor attacker = opponent(color);
+        long legal = 0;
+        long remaining = targets;
+        while (remaining != 0) {
+            int to = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            ChessPiece captured = board.getPiece(to);
+            board.addPiece(to, piece);
+            board.addPiece(from, null);
+            int king = board.getKingSquare(color);
+            if (king < 0 || !isSquareAttacked(board, king, attacker)) {
+                legal |= Bitboards.bit(to);
+            }
+            board.addPiece(from, piece);
+            board.addPiece(to, captured);
+        }
+        return legal;
+    }
+
+    /**
+     * @param occupied the occupancy to use for sliding pieces
+     * @return bitboard of every square attacked by the attacking team
+     */
+    public static long attackedSquares(ChessBoard board, ChessGame.TeamColor attacker, long occupied) {
+        long attacked = Bitboards.pawnAttacks(attacker, board.getBitboard(attacker, ChessPiece.PieceType.PAWN))
+                | Bitboards.knightAttacks(board.getBitboard(attacker, ChessPiece.PieceType.KNIGHT))
+                | Bitboards.kingAttacks(board.getBitboard(attacker, ChessPiece.PieceType.KING));
+        long queens = board.getBitboard(attacker, ChessPiece.PieceType.QUEEN);
+        long rooks = board.getBitboard(attacker, ChessPiece.PieceType.ROOK) | queens;
+        while (rooks != 0) {
+            attacked |= AttackTables.rookAttacks(Long.numberOfTrailingZeros(rooks), occupied);
+            rooks &= rooks - 1;
+        }
+        long bishops = board.getBitboard(attacker, ChessPiece.PieceType.BISHOP) | queens;
+        while (bishops != 0) {
+            attacked |= AttackTables.bishopAttacks(Long.numberOfTrailingZeros(bishops), occupied);
+            bishops &= bishops - 1;
+        }
+        return attacked;
+    }
+
+    /**
+     * Calculates the squares a piece could move to from a square
+     *
+     * @param board the board the piece is on
+     * @param from  the square index the piece moves from
+     * @param color the color of the moving piece
+     * @param type  the type of the moving piece
+     * @return bitboard of target squares
+     */
+    public static long pseudoLegalTargets(ChessBoard board, int from, ChessGame.TeamColor color,
+                                          ChessPiece.PieceType type) {
+        long occupied = board.getOccupancy();
+        long notOwn = ~board.getOccupancy(color);
+        return switch (type) {
+            case KING -> AttackTables.kingAttacks(from) & notOwn;
+            case QUEEN -> AttackTables.queenAttacks(from, occupied) & notOwn;
+            case BISHOP -> AttackTables.bishopAttacks(from, occupied) & notOwn;
+            case KNIGHT -> AttackTables.knightAttacks(from) & notOwn;
+            case ROOK -> AttackTables.rookAttacks(from, occupied) & notOwn;
+            case PAWN -> pawnTargets(board, from, color, occupied);
+        };
+    }
+
+    private static long pawnTargets(ChessBoard board, int from, ChessGame.TeamColor color, long occupied) {
+        long captures = AttackTables.pawnAttacks(color, from) & board.getOccupancy(opponent(color));
+        long pawn = Bitboards.bit(from);
+        long pushes;
+        if (color == ChessGame.TeamColor.WHITE) {
+            pushes = (pawn << 8) & ~occupied;
+            pushes |= ((pushes & (Bitboards.RANK_2 << 8)) << 8) & ~occupied;
+        } else {
+            pushes = (pawn >>> 8) & ~occupied;
+            pushes |= ((pushes & (Bitboards.RANK_7 >>> 8)) >>> 8) & ~occupied;
+        }
+        return pushes | captures;
+    }
+
+    /**
+     * @return bitboard of the squares a pawn of this color promotes on
+     */
+    public static long promotionRank(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+    }
+
+    /**
+     * Determines if any piece of the attacking team attacks a square
+     *
+     * @param board    the board to look at
+     * @param square   the square index to test
+     * @param attacker the team doing the attacking
+     * @return True if the square is attacked
+     */
+    public static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor attacker) {
+        return attackersOf(board, square, attacker, board.getOccupancy()) != 0;
+    }
+
+    /**
+     * @param occupied the occupancy to use for sliding pieces, which lets callers
+     *                 look through pieces that are about to move
+     * @return bitboard of the attacking team's pieces that attack a square
+     */
+    public static long attackersOf(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupied) {
+        long queens = board.getBitboard(attacker, ChessPiece.PieceType.QUEEN);
+        long rooks = board.getBitboard(attacker, ChessPiece.PieceType.ROOK) | queens;
+        long bishops = board.getBitboard(attacker, ChessPiece.PieceType.BISHOP) | queens;
+        return (AttackTables.pawnAttacks(opponent(attacker), square)
+                        & board.getBitboard(attacker, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knightAttacks(square) & board.getBitboard(attacker, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.kingAttacks(square) & board.getBitboard(attacker, ChessPiece.PieceType.KING))
+                | (AttackTables.rookAttacks(square, occupied) & rooks)
+                | (AttackTables.bishopAttacks(square, occupied) & bishops);
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
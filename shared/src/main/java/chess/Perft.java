@@ -0,0 +1,285 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth.
+ * <p>
+ * Node counts for well known positions are the standard way to check a move
+ * generator, and the time taken gives a nodes-per-second figure for it.
+ * Castling and en passant are not part of this game's rules, so counts only
+ * match published values at depths where neither move can occur.
+ * <p>
+ * {@link #divide} splits the root moves over a {@link ForkJoinPool} and can
+ * share a {@link PerftTable} between the threads, which makes deep runs
+ * practical.
+ */
+public final class Perft {
+
+    /**
+     * The outcome of a timed perft run
+     *
+     * @param depth        the depth searched
+     * @param nodes        leaf nodes counted
+     * @param elapsedNanos wall clock time taken
+     */
+    public record Result(int depth, long nodes, long elapsedNanos) {
+        public long nodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth %d: %,d nodes in %,d ms (%,d nodes/s)",
+                    depth, nodes, elapsedNanos / 1_000_000, nodesPerSecond());
+        }
+    }
+
+    /**
+     * The nodes below one root move
+     *
+     * @param move  the root move, encoded by {@link Move}
+     * @param nodes leaf nodes counted after playing it
+     */
+    public record RootMove(int move, long nodes) {
+        @Override
+        public String toString() {
+            return Move.toString(move) + ": " + nodes;
+        }
+    }
+
+    /**
+     * The outcome of a perft run split by root move
+     *
+     * @param result the total for every root move
+     * @param moves  the count for each root move, in generation order
+     */
+    public record Divide(Result result, List<RootMove> moves) {
+    }
+
+    /* Shallower positions are counted faster than the table can be probed */
+    private static final int MIN_TABLE_DEPTH = 2;
+
+    private Perft() {
+    }
+
+    /**
+     * Counts leaf nodes using only the public ChessGame API. Every move is
+     * found with {@link ChessGame#validMoves} and played with
+     * {@link ChessGame#makeMove} on a copy of the game.
+     *
+     * @param game  the position to start from, which is left unchanged
+     * @param depth number of plies to search
+     * @return number of leaf nodes
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = game.getBoard().getPiece(position);
+                if (piece == null || piece.getTeamColor() != game.getTeamTurn()) {
+                    continue;
+                }
+                Collection<ChessMove> moves = game.validMoves(position);
+                if (depth == 1) {
+                    nodes += moves.size();
+                    continue;
+                }
+                for (ChessMove move : moves) {
+                    ChessGame next = copyOf(game);
+                    try {
+                        next.makeMove(move);
+                    } catch (InvalidMoveException e) {
+                        throw new IllegalStateException("validMoves returned an invalid move " + move, e);
+                    }
+                    nodes += perft(next, depth - 1);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts leaf nodes with the internal bitboard path. Legal moves are
+     * generated into reusable {@link Move} buffers and played and taken back
+     * with {@link ChessGame#doMove} and {@link ChessGame#undoMove}, and the last
+     * ply is counted without playing it.
+     *
+     * @param game  the position to start from, which is restored before returning
+     * @param depth number of plies to search
+     * @return number of leaf nodes
+     */
+    public static long perftInternal(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perftInternal(game, depth, new int[depth][Move.MAX_MOVES]);
+    }
+
+    private static long perftInternal(ChessGame game, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = game.legalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            nodes += perftInternal(game, depth - 1, buffers);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts leaf nodes for each root move in parallel. Every root move is a
+     * fork-join task with its own copy of the game, counted as
+     * {@link #perftInternal} does, except that counts found in the table are
+     * not searched again.
+     *
+     * @param game  the position to start from, which is left unchanged
+     * @param depth number of plies to search, at least 1
+     * @param pool  the pool to count root moves in
+     * @param table counts shared between the tasks, or null to count every node
+     * @return the total and the count for each root move
+     */
+    public static Divide divide(ChessGame game, int depth, ForkJoinPool pool, PerftTable table) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        long start = System.nanoTime();
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = game.legalMoves(moves);
+        List<RootTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new RootTask(game, moves[i], depth - 1, table));
+        }
+        List<RootMove> results = new ArrayList<>(count);
+        long nodes = 0;
+        for (RootTask task : pool.invoke(new RootTasks(tasks))) {
+            results.add(new RootMove(task.move, task.join()));
+            nodes += task.join();
+        }
+        return new Divide(new Result(depth, nodes, System.nanoTime() - start), List.copyOf(results));
+    }
+
+    /*
+     * Forks every root task from inside the pool, so they are spread over its
+     * threads, and waits for them all
+     */
+    @SuppressWarnings("serial") // Serializable only through RecursiveTask, and never serialized
+    private static final class RootTasks extends RecursiveTask<List<RootTask>> {
+        private final List<RootTask> tasks;
+
+        RootTasks(List<RootTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<RootTask> compute() {
+            invokeAll(tasks);
+            return tasks;
+        }
+    }
+
+    @SuppressWarnings("serial") // Serializable only through RecursiveTask, and never serialized
+    private static final class RootTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int move;
+        private final int depth;
+        private final PerftTable table;
+
+        RootTask(ChessGame root, int move, int depth, PerftTable table) {
+            this.game = copyOf(root);
+            this.move = move;
+            this.depth = depth;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            game.doMove(move);
+            if (depth == 0) {
+                return 1L;
+            }
+            return perftHashed(game, depth, new int[depth][Move.MAX_MOVES], table);
+        }
+    }
+
+    private static long perftHashed(ChessGame game, int depth, int[][] buffers, PerftTable table) {
+        if (table == null || depth < MIN_TABLE_DEPTH) {
+            return perftInternal(game, depth, buffers);
+        }
+        long key = game.positionKey();
+        long nodes = table.probe(key, depth);
+        if (nodes >= 0) {
+            return nodes;
+        }
+        nodes = 0;
+        int[] moves = buffers[depth - 1];
+        int count = game.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            nodes += perftHashed(game, depth - 1, buffers, table);
+            game.undoMove();
+        }
+        table.store(key, depth, nodes);
+        return nodes;
+    }
+
+    /**
+     * Runs perft and measures how long it takes
+     *
+     * @param internal true to use {@link #perftInternal}, false for {@link #perft}
+     */
+    public static Result timed(ChessGame game, int depth, boolean internal) {
+        long start = System.nanoTime();
+        long nodes = internal ? perftInternal(game, depth) : perft(game, depth);
+        return new Result(depth, nodes, System.nanoTime() - start);
+    }
+
+    private static ChessGame copyOf(ChessGame game) {
+        ChessGame copy = new ChessGame();
+        copy.setBoard(game.getBoard().copy());
+        copy.setTeamTurn(game.getTeamTurn());
+        return copy;
+    }
+
+    /**
+     * Runs perft from the starting position, printing nodes per second for each
+     * depth. The parallel mode runs {@link #divide} once at the given depth,
+     * printing the count for each root move, with a perft table of the given
+     * size in MB, or none for 0. Usage:
+     * {@code Perft [maxDepth] [public|internal|parallel [threads] [tableMB]]}
+     */
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String mode = args.length > 1 ? args[1] : "internal";
+        if (mode.equals("parallel")) {
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            int megabytes = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+            PerftTable table = megabytes > 0 ? PerftTable.ofMegabytes(megabytes) : null;
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                Divide divide = divide(new ChessGame(), maxDepth, pool, table);
+                divide.moves().forEach(System.out::println);
+                System.out.println(divide.result());
+            } finally {
+                pool.shutdown();
+            }
+            return;
+        }
+        boolean internal = !mode.equals("public");
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            System.out.println(timed(new ChessGame(), depth, internal));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package chess;
+
+/**
+ * A hash table of perft node counts keyed by position and depth, shared by
+ * every thread of a perft run without locks.
+ * <p>
+ * Positions reached by different move orders have the same count below them,
+ * so a count stored once can stand in for every later visit. Each slot holds
+ * the count and depth packed into one long, and the position key XORed with
+ * that long. A slot torn by two threads writing at once fails the XOR check
+ * and reads as empty, as in the engine's transposition table. A new count
+ * always replaces the slot's old one.
+ */
+public class PerftTable {
+
+    /**
+     * Size of one entry in bytes
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    private static final int DEPTH_BITS = 8;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * @param entries number of entries, rounded down to a power of two
+     */
+    public PerftTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Table must have at least one entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Creates a table that uses at most the given amount of memory
+     *
+     * @param megabytes memory for the table's entries, at least 1
+     * @return a table with the largest power of two number of entries that fits
+     */
+    public static PerftTable ofMegabytes(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+        return new PerftTable((int) Math.min(entries, 1 << 30));
+    }
+
+    /**
+     * @param key   the position's {@link ChessGame#positionKey}
+     * @param depth the depth the count is for
+     * @return the stored count, or -1 if the table has none for the position
+     * and depth
+     */
+    public long probe(long key, int depth) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) != key || (entry & DEPTH_MASK) != depth || entry == 0) {
+            return -1;
+        }
+        return entry >>> DEPTH_BITS;
+    }
+
+    /**
+     * @param key   the position's {@link ChessGame#positionKey}
+     * @param depth the depth the count is for
+     * @param nodes leaf nodes below the position at that depth
+     */
+    public void store(long key, int depth, long nodes) {
+        int index = (int) key & mask;
+        long entry = nodes << DEPTH_BITS | depth;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int capacity() {
+        return keys.length;
+    }
+}
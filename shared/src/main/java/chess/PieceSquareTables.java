@@ -0,0 +1,161 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Piece values and piece-square bonuses for evaluation, loaded once from the
+ * {@value #RESOURCE} resource.
+ * <p>
+ * Values are stored from white's point of view, with black pieces negated, so
+ * a board's score is the plain sum of the values of its pieces. Once a
+ * board's score has been read, the board keeps that sum up to date in
+ * {@link ChessBoard#addPiece}, which makes reading it again O(1). Boards that
+ * are never scored never load the tables.
+ */
+public final class PieceSquareTables {
+
+    /**
+     * Classpath location of the tables
+     */
+    public static final String RESOURCE = "/chess/piece-square-tables.txt";
+
+    private static final int[][] MIDGAME = new int[Bitboards.PIECE_COUNT][64];
+    private static final int[][] ENDGAME = new int[Bitboards.PIECE_COUNT][64];
+    private static final int[] PHASE = new int[Bitboards.PIECE_COUNT];
+    private static final int[] MATERIAL = new int[ChessPiece.PieceType.values().length];
+    private static final int MAX_PHASE;
+
+    static {
+        int[][] material = new int[2][ChessPiece.PieceType.values().length];
+        int[][][] tables = new int[2][ChessPiece.PieceType.values().length][64];
+        int[] weights = new int[ChessPiece.PieceType.values().length];
+        load(material, tables, weights);
+        System.arraycopy(material[0], 0, MATERIAL, 0, MATERIAL.length);
+
+        for (int index = 0; index < Bitboards.PIECE_COUNT; index++) {
+            ChessGame.TeamColor color = Bitboards.colorOf(index);
+            int type = Bitboards.typeOf(index).ordinal();
+            int sign = color == ChessGame.TeamColor.WHITE ? 1 : -1;
+            for (int square = 0; square < 64; square++) {
+                // tables are written for white; black sees the board upside down
+                int whiteSquare = color == ChessGame.TeamColor.WHITE ? square : square ^ 56;
+                MIDGAME[index][square] = sign * (material[0][type] + tables[0][type][whiteSquare]);
+                ENDGAME[index][square] = sign * (material[1][type] + tables[1][type][whiteSquare]);
+            }
+            PHASE[index] = weights[type];
+        }
+        // each side starts with 8 pawns, 2 knights, 2 bishops, 2 rooks, a queen and a king
+        int sidePhase = 8 * weights[ChessPiece.PieceType.PAWN.ordinal()]
+                + 2 * weights[ChessPiece.PieceType.KNIGHT.ordinal()]
+                + 2 * weights[ChessPiece.PieceType.BISHOP.ordinal()]
+                + 2 * weights[ChessPiece.PieceType.ROOK.ordinal()]
+                + weights[ChessPiece.PieceType.QUEEN.ordinal()]
+                + weights[ChessPiece.PieceType.KING.ordinal()];
+        MAX_PHASE = Math.max(1, 2 * sidePhase);
+    }
+
+    private PieceSquareTables() {
+    }
+
+    /**
+     * @return midgame value of a piece on a square, positive for white
+     */
+    public static int midgame(int pieceIndex, int square) {
+        return MIDGAME[pieceIndex][square];
+    }
+
+    /**
+     * @return endgame value of a piece on a square, positive for white
+     */
+    public static int endgame(int pieceIndex, int square) {
+        return ENDGAME[pieceIndex][square];
+    }
+
+    /**
+     * @return the midgame material value of a piece type, without any
+     * piece-square bonus
+     */
+    public static int material(ChessPiece.PieceType type) {
+        return MATERIAL[type.ordinal()];
+    }
+
+    /**
+     * @return how much a piece counts toward the midgame phase
+     */
+    public static int phase(int pieceIndex) {
+        return PHASE[pieceIndex];
+    }
+
+    /**
+     * @return the phase of the starting position, where the score is all midgame
+     */
+    public static int maxPhase() {
+        return MAX_PHASE;
+    }
+
+    /**
+     * Blends midgame and endgame scores by how much material is left
+     *
+     * @param phase the board's phase, from {@link ChessBoard#getPhase}
+     * @return the tapered score, positive for white
+     */
+    public static int taper(int midgame, int endgame, int phase) {
+        int weight = Math.min(phase, MAX_PHASE);
+        return (midgame * weight + endgame * (MAX_PHASE - weight)) / MAX_PHASE;
+    }
+
+    private static void load(int[][] material, int[][][] tables, int[] weights) {
+        InputStream stream = PieceSquareTables.class.getResourceAsStream(RESOURCE);
+        if (stream == null) {
+            throw new IllegalStateException("Missing resource " + RESOURCE);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] words = line.trim().split("\\s+");
+                if (words[0].isEmpty() || words[0].startsWith("#")) {
+                    continue;
+                }
+                try {
+                    switch (words[0]) {
+                        case "material" -> {
+                            int type = ChessPiece.PieceType.valueOf(words[1]).ordinal();
+                            material[0][type] = Integer.parseInt(words[2]);
+                            material[1][type] = Integer.parseInt(words[3]);
+                        }
+                        case "phase" -> weights[ChessPiece.PieceType.valueOf(words[1]).ordinal()]
+                                = Integer.parseInt(words[2]);
+                        case "table" -> {
+                            int type = ChessPiece.PieceType.valueOf(words[1]).ordinal();
+                            int stage = words[2].equals("midgame") ? 0 : words[2].equals("endgame") ? 1 : -1;
+                            if (stage < 0) {
+                                throw new IllegalArgumentException("unknown stage " + words[2]);
+                            }
+                            for (int row = 8; row >= 1; row--) {
+                                String[] values = reader.readLine().trim().split("\\s+");
+                                lineNumber++;
+                                if (values.length != 8) {
+                                    throw new IllegalArgumentException("expected 8 values");
+                                }
+                                for (int col = 1; col <= 8; col++) {
+                                    tables[stage][type][Bitboards.square(row, col)] = Integer.parseInt(values[col - 1]);
+                                }
+                            }
+                        }
+                        default -> throw new IllegalArgumentException("unknown entry " + words[0]);
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException(RESOURCE + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + RESOURCE, e);
+        }
+    }
+}
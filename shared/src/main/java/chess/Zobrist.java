@@ -0,0 +1,61 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing.
+ * <p>
+ * A position's key is the XOR of one key per piece on the board, chosen by the
+ * piece's color, type and square, and the side key when black is to move.
+ * Adding, removing or moving a piece changes the key with one or two XORs, so
+ * it can be kept up to date as the board changes. The keys come from a fixed
+ * seed, so a position has the same key in every run and keys can be stored.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x2D358DCCAA6C78A5L;
+
+    private static final long[] PIECE_KEYS = new long[Bitboards.PIECE_COUNT * 64];
+    private static final long SIDE_KEY;
+
+    static {
+        long state = SEED;
+        for (int i = 0; i < PIECE_KEYS.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            PIECE_KEYS[i] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        SIDE_KEY = mix(state);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param pieceIndex the piece's index from {@link Bitboards#pieceIndex}
+     * @param square     the square index the piece is on
+     * @return the key for that piece on that square
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_KEYS[pieceIndex * 64 + square];
+    }
+
+    /**
+     * @return the key for that piece on that square
+     */
+    public static long piece(ChessPiece piece, int square) {
+        return piece(Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()), square);
+    }
+
+    /**
+     * @return the key XORed in when black is to move
+     */
+    public static long side() {
+        return SIDE_KEY;
+    }
+
+    /* SplitMix64 finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,42 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Static evaluation of a position, in centipawns.
+ * <p>
+ * Material and positional values both come from {@link PieceSquareTables}.
+ * {@link #pieceValue} uses the midgame material values for move ordering,
+ * where only the relative order of pieces matters.
+ */
+public final class Evaluation {
+
+    private Evaluation() {
+    }
+
+    /**
+     * @return the midgame material value of a piece type in centipawns, with
+     * the king worth 0 since it is never traded
+     */
+    public static int pieceValue(ChessPiece.PieceType type) {
+        return PieceSquareTables.material(type);
+    }
+
+    /**
+     * Scores a position by material and piece placement, tapered between
+     * midgame and endgame values by the material left. After the first call
+     * for a board, the board keeps the totals up to date as pieces move, so
+     * this takes constant time.
+     *
+     * @param board the board to score
+     * @param side  the side to score the position for
+     * @return positive when {@code side} is ahead
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor side) {
+        int score = PieceSquareTables.taper(board.getMidgameScore(), board.getEndgameScore(), board.getPhase());
+        return side == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,228 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A read only book of opening moves, memory mapped from a file.
+ * <p>
+ * The file is a header followed by fixed size entries sorted by position key.
+ * Each entry holds a position's {@link ChessGame#positionKey}, one move from
+ * that position and the move's weight, so a position with several book moves
+ * has several adjacent entries. A probe binary searches the mapped file
+ * directly, so the book is never copied onto the heap and the operating system
+ * pages in only the parts that are used.
+ * <p>
+ * Books are written by {@link OpeningBookBuilder}. A book is safe to probe from
+ * any number of threads.
+ */
+public class OpeningBook {
+
+    /**
+     * Bytes at the start of every book file
+     */
+    public static final int MAGIC = 0x43484B42;
+
+    /**
+     * Version of the file layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version and entry count
+     */
+    public static final int HEADER_BYTES = 12;
+
+    /**
+     * Size of one entry: an 8 byte key, a 2 byte move and a 2 byte weight
+     */
+    public static final int ENTRY_BYTES = 12;
+
+    /**
+     * Bits of an encoded {@link Move} stored in the book: the squares and
+     * promotion, without flags
+     */
+    static final int MOVE_MASK = 0x7FFF;
+
+    /**
+     * One book move
+     *
+     * @param move   the move, encoded by {@link Move} with its flags set for the
+     *               position it was probed from
+     * @param weight how often the move was played, relative to the position's
+     *               other book moves
+     */
+    public record Entry(int move, int weight) {
+        @Override
+        public String toString() {
+            return Move.toString(move) + " " + weight;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported opening book version " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        if (size < 0 || (long) size * ENTRY_BYTES + HEADER_BYTES > buffer.capacity()) {
+            throw new IllegalArgumentException("Opening book is truncated");
+        }
+    }
+
+    /**
+     * Maps a book file into memory. The file stays mapped until the book is
+     * garbage collected.
+     *
+     * @param path the book file
+     * @return the mapped book
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(mapped);
+        }
+    }
+
+    /**
+     * Wraps a book that is already in memory, such as one read from a resource
+     *
+     * @param bytes the contents of a book file
+     * @return the book
+     * @throws IllegalArgumentException if the bytes are not a valid book
+     */
+    public static OpeningBook of(ByteBuffer bytes) {
+        return new OpeningBook(bytes.slice());
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the book moves for a position. Stored moves that are not legal in
+     * the position, which can only happen for a key collision, are skipped.
+     *
+     * @param game the position to look up, for the side whose turn it is
+     * @return the book moves, heaviest first and in file order among equal
+     * weights, or an empty list if the position is not in the book
+     */
+    public List<Entry> probe(ChessGame game) {
+        int first = firstIndex(game.positionKey());
+        if (first < 0) {
+            return List.of();
+        }
+        int[] legal = new int[Move.MAX_MOVES];
+        int count = game.legalMoves(legal);
+        List<Entry> entries = new ArrayList<>();
+        long key = game.positionKey();
+        for (int i = first; i < size && key(i) == key; i++) {
+            int move = find(legal, count, move(i));
+            if (move != Move.NONE) {
+                entries.add(new Entry(move, weight(i)));
+            }
+        }
+        // The builder writes heaviest first, but a file from anywhere else might not
+        entries.sort(Comparator.comparingInt(Entry::weight).reversed());
+        return entries;
+    }
+
+    /**
+     * Chooses a book move at random, in proportion to the moves' weights. If
+     * every weight is zero, the first move is chosen.
+     *
+     * @param game   the position to choose a move in
+     * @param random source of randomness
+     * @return the chosen move, encoded by {@link Move}, or {@link Move#NONE} if
+     * the position is not in the book
+     */
+    public int choose(ChessGame game, RandomGenerator random) {
+        List<Entry> entries = probe(game);
+        if (entries.isEmpty()) {
+            return Move.NONE;
+        }
+        int total = 0;
+        for (Entry entry : entries) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return entries.get(0).move();
+        }
+        int pick = random.nextInt(total);
+        for (Entry entry : entries) {
+            pick -= entry.weight();
+            if (pick < 0) {
+                return entry.move();
+            }
+        }
+        return entries.get(0).move();
+    }
+
+    /**
+     * @return true if the position has at least one entry in the book
+     */
+    public boolean contains(long key) {
+        return firstIndex(key) >= 0;
+    }
+
+    /*
+     * Binary search for the lowest index holding the key, or -1
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < size && key(low) == key ? low : -1;
+    }
+
+    private long key(int index) {
+        return buffer.getLong(HEADER_BYTES + index * ENTRY_BYTES);
+    }
+
+    private int move(int index) {
+        return buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 8) & MOVE_MASK;
+    }
+
+    private int weight(int index) {
+        return buffer.getShort(HEADER_BYTES + index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    private static int find(int[] legal, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (Move.sameMove(legal[i], move)) {
+                return legal[i];
+            }
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,417 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles games into an {@link OpeningBook} file.
+ * <p>
+ * Each game is replayed from the starting position for up to a fixed number
+ * of plies, and every position reached counts the move played from it. A
+ * move's weight in the book is the number of games that played it. Games can
+ * be read from PGN, with moves in standard algebraic notation, or from move
+ * lists with one game per line in either algebraic or coordinate notation.
+ * <p>
+ * Castling and en passant are not part of this game's rules, so a game stops
+ * counting at the first move that cannot be played, and the positions before
+ * it are still added.
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Plies of each game added to the book when no limit is given
+     */
+    public static final int DEFAULT_MAX_PLIES = 20;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPlies;
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private int games;
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * @param maxPlies plies of each game to add to the book
+     */
+    public OpeningBookBuilder(int maxPlies) {
+        if (maxPlies < 1) {
+            throw new IllegalArgumentException("A book must hold at least one ply of each game");
+        }
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Adds one game to the book
+     *
+     * @param moves the game's moves in algebraic or coordinate notation
+     * @return the number of plies added, which is less than the game's length if
+     * the game is longer than the limit or has a move that cannot be played
+     */
+    public int addGame(List<String> moves) {
+        ChessGame game = new ChessGame();
+        int[] legal = new int[Move.MAX_MOVES];
+        int plies = 0;
+        for (String text : moves) {
+            if (plies == maxPlies) {
+                break;
+            }
+            int count = game.legalMoves(legal);
+            int move = parseMove(game, text, legal, count);
+            if (move == Move.NONE) {
+                break;
+            }
+            counts.computeIfAbsent(game.positionKey(), key -> new HashMap<>())
+                    .merge(move & OpeningBook.MOVE_MASK, 1, Integer::sum);
+            game.doMove(move);
+            plies++;
+        }
+        if (plies > 0) {
+            games++;
+        }
+        return plies;
+    }
+
+    /**
+     * Adds every game in a move list: one game per line, moves separated by
+     * spaces, with blank lines and lines starting with # ignored. Move numbers
+     * and results are skipped, so a line may be copied from a PGN movetext.
+     *
+     * @return the number of games read
+     */
+    public int addMoveList(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int read = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> moves = new ArrayList<>();
+            for (String token : line.split("\\s+")) {
+                String move = stripMoveNumber(token);
+                if (!move.isEmpty() && !isResult(move)) {
+                    moves.add(move);
+                }
+            }
+            addGame(moves);
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * Adds every game in a PGN file. Tag pairs, comments, variations and
+     * annotation glyphs are skipped, so only each game's main line is added.
+     *
+     * @return the number of games read
+     */
+    public int addPgn(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<String> moves = new ArrayList<>();
+        int read = 0;
+        boolean inComment = false;
+        int variationDepth = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (!inComment && (line.startsWith("[") || line.startsWith("%"))) {
+                if (line.startsWith("[") && !moves.isEmpty()) {
+                    addGame(moves);
+                    moves.clear();
+                    read++;
+                }
+                continue;
+            }
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (inComment) {
+                    inComment = c != '}';
+                    i++;
+                } else if (c == '{') {
+                    inComment = true;
+                    i++;
+                } else if (c == ';') {
+                    break;
+                } else if (c == '(') {
+                    variationDepth++;
+                    i++;
+                } else if (c == ')') {
+                    variationDepth = Math.max(0, variationDepth - 1);
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else {
+                    int end = i;
+                    while (end < line.length() && !Character.isWhitespace(line.charAt(end))
+                            && "{}();".indexOf(line.charAt(end)) < 0) {
+                        end++;
+                    }
+                    String token = stripMoveNumber(line.substring(i, end));
+                    i = end;
+                    if (variationDepth > 0 || token.isEmpty() || token.startsWith("$")) {
+                        continue;
+                    }
+                    if (isResult(token)) {
+                        addGame(moves);
+                        moves.clear();
+                        read++;
+                    } else {
+                        moves.add(token);
+                    }
+                }
+            }
+        }
+        if (!moves.isEmpty()) {
+            addGame(moves);
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * @return the number of games that added at least one ply
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * @return the number of distinct positions in the book
+     */
+    public int positions() {
+        return counts.size();
+    }
+
+    /**
+     * Lays the book out in the {@link OpeningBook} file format
+     *
+     * @return the book's bytes, positioned at the start
+     */
+    public ByteBuffer build() {
+        TreeMap<Long, Map<Integer, Integer>> sorted = new TreeMap<>(Long::compareUnsigned);
+        sorted.putAll(counts);
+        int size = 0;
+        for (Map<Integer, Integer> moves : sorted.values()) {
+            size += moves.size();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + size * OpeningBook.ENTRY_BYTES)
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(size);
+        for (Map.Entry<Long, Map<Integer, Integer>> position : sorted.entrySet()) {
+            List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(position.getValue().entrySet());
+            moves.sort((a, b) -> b.getValue().equals(a.getValue())
+                    ? Integer.compare(a.getKey(), b.getKey()) : Integer.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<Integer, Integer> move : moves) {
+                buffer.putLong(position.getKey())
+                        .putShort((short) move.getKey().intValue())
+                        .putShort((short) Math.min(move.getValue(), MAX_WEIGHT));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes the book to a file, replacing it if it exists
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = build();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Finds the legal move a piece of text names
+     *
+     * @param game  the position the move is played in
+     * @param text  the move in algebraic notation, such as Nf3, exd5 or e8=Q+,
+     *              or coordinate notation, such as g1f3 or e7e8q
+     * @param legal the legal moves in the position
+     * @param count the number of legal moves
+     * @return the move, or {@link Move#NONE} if the text names no legal move or
+     * more than one
+     */
+    static int parseMove(ChessGame game, String text, int[] legal, int count) {
+        int length = text.length();
+        while (length > 0 && "+#!?".indexOf(text.charAt(length - 1)) >= 0) {
+            length--;
+        }
+        if (length < 2) {
+            return Move.NONE;
+        }
+        String move = text.substring(0, length);
+        if (isCoordinateMove(move)) {
+            return coordinateMove(move, legal, count);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        int start = 0;
+        ChessPiece.PieceType moved = pieceType(move.charAt(0));
+        if (moved != null && moved != ChessPiece.PieceType.PAWN && Character.isUpperCase(move.charAt(0))) {
+            type = moved;
+            start = 1;
+        }
+        ChessPiece.PieceType promotion = null;
+        int end = move.length();
+        if (type == ChessPiece.PieceType.PAWN) {
+            ChessPiece.PieceType last = pieceType(move.charAt(end - 1));
+            if (last != null && Character.isUpperCase(move.charAt(end - 1))) {
+                promotion = last;
+                end--;
+                if (end > 0 && move.charAt(end - 1) == '=') {
+                    end--;
+                }
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int to = square(move.charAt(end - 2), move.charAt(end - 1));
+        if (to < 0) {
+            return Move.NONE;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = move.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int candidate = legal[i];
+            int from = Move.from(candidate);
+            ChessPiece piece = game.getBoard().getPiece(from);
+            if (Move.to(candidate) != to || piece.getPieceType() != type
+                    || Move.promotion(candidate) != promotion
+                    || (fromFile >= 0 && (from & 7) != fromFile)
+                    || (fromRank >= 0 && (from >>> 3) != fromRank)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = candidate;
+        }
+        return found;
+    }
+
+    private static boolean isCoordinateMove(String move) {
+        return (move.length() == 4 || move.length() == 5)
+                && square(move.charAt(0), move.charAt(1)) >= 0
+                && square(move.charAt(2), move.charAt(3)) >= 0
+                && (move.length() == 4 || "qrbn".indexOf(move.charAt(4)) >= 0);
+    }
+
+    private static int coordinateMove(String move, int[] legal, int count) {
+        int from = square(move.charAt(0), move.charAt(1));
+        int to = square(move.charAt(2), move.charAt(3));
+        ChessPiece.PieceType promotion = move.length() == 5 ? pieceType(move.charAt(4)) : null;
+        for (int i = 0; i < count; i++) {
+            if (Move.from(legal[i]) == from && Move.to(legal[i]) == to && Move.promotion(legal[i]) == promotion) {
+                return legal[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return (rank - '1') * 8 + (file - 'a');
+    }
+
+    private static ChessPiece.PieceType pieceType(char c) {
+        return switch (Character.toUpperCase(c)) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> null;
+        };
+    }
+
+    /*
+     * Removes a leading move number, such as 12. or 12..., from a token
+     */
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == token.length() || token.charAt(i) != '.') {
+            return token;
+        }
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return token.substring(i);
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    /**
+     * Compiles a book. Files ending in .pgn are read as PGN and all others as
+     * move lists.
+     * Usage: {@code OpeningBookBuilder [--plies n] <book> <games>...}
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = DEFAULT_MAX_PLIES;
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--plies")) {
+            plies = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length - first < 2) {
+            System.err.println("Usage: OpeningBookBuilder [--plies n] <book> <games>...");
+            System.exit(1);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        for (int i = first + 1; i < args.length; i++) {
+            Path input = Path.of(args[i]);
+            try (Reader reader = Files.newBufferedReader(input)) {
+                int read = input.toString().toLowerCase().endsWith(".pgn")
+                        ? builder.addPgn(reader) : builder.addMoveList(reader);
+                System.out.printf("%s: %,d games%n", input, read);
+            }
+        }
+        Path output = Path.of(args[first]);
+        builder.write(output);
+        System.out.printf("%s: %,d games, %,d positions, %,d bytes%n",
+                output, builder.games(), builder.positions(), Files.size(output));
+    }
+}
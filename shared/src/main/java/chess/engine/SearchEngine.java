@@ -0,0 +1,512 @@
+package chess.engine;
+
+import chess.Bitbases;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Finds a good move with a negamax alpha-beta search.
+ * <p>
+ * The search deepens one ply at a time until it reaches a limit, then returns
+ * the best move of the last depth it finished. At the end of the main search a
+ * quiescence search follows captures and promotions until the position is
+ * quiet, so a score is never taken in the middle of an exchange. Moves are
+ * tried in order of transposition table move, captures by most valuable victim
+ * and least valuable attacker, promotions, killer moves and then the history of
+ * quiet moves that caused cutoffs.
+ * <p>
+ * With more than one thread the search uses Lazy SMP: helper threads search
+ * the same position at staggered depths with their own move ordering state,
+ * and every thread shares the transposition table. The helpers' results reach
+ * the main thread only through the table, where they cut off or reorder the
+ * main thread's search.
+ * <p>
+ * If the engine has an {@link OpeningBook} and the position is in it, a book
+ * move is returned at once without searching. Below the root, positions covered
+ * by {@link Bitbases} are scored from the tables instead of being searched.
+ * <p>
+ * An engine keeps its buffers between searches, so one engine should run one
+ * search at a time. {@link #stop} may be called from any thread.
+ */
+public class SearchEngine {
+
+    /**
+     * Score of delivering mate now. A mate found n plies from the root scores
+     * MATE_SCORE - n.
+     */
+    public static final int MATE_SCORE = 30_000;
+
+    /**
+     * Deepest ply the search will reach, including quiescence search
+     */
+    public static final int MAX_PLY = 64;
+
+    private static final int INFINITY = 32_000;
+    private static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+
+    /*
+     * Score of a bitbase win, below every mate score and above every
+     * evaluation. The evaluation is added so the winning side still makes
+     * progress between won positions.
+     */
+    private static final int KNOWN_WIN = 20_000;
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final int TABLE_MOVE_ORDER = 1_000_000;
+    private static final int CAPTURE_ORDER = 500_000;
+    private static final int PROMOTION_ORDER = 400_000;
+    private static final int FIRST_KILLER_ORDER = 300_000;
+    private static final int SECOND_KILLER_ORDER = 299_000;
+    private static final int HISTORY_LIMIT = 200_000;
+
+    private final TranspositionTable table;
+    private final List<Worker> workers = new ArrayList<>();
+
+    private volatile boolean stopRequested;
+    private volatile OpeningBook book;
+    private volatile Bitbases bitbases;
+
+    /**
+     * Creates an engine that searches with the process wide
+     * {@link TranspositionTable#shared} table
+     */
+    public SearchEngine() {
+        this(TranspositionTable.shared());
+    }
+
+    /**
+     * @param table the transposition table to search with, which may be shared
+     *              with other engines
+     */
+    public SearchEngine(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Searches a position without changing it
+     *
+     * @param position the game to find a move in, for the side whose turn it is
+     * @param limits   when to stop searching
+     * @return the best move found and search statistics
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    /**
+     * Searches a position without changing it, reporting each depth the main
+     * thread finishes
+     *
+     * @param position    the game to find a move in, for the side whose turn it is
+     * @param limits      when to stop searching
+     * @param onIteration called on the calling thread with the result of each
+     *                    finished depth, or null
+     * @return the best move found and search statistics
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, Consumer<SearchResult> onIteration) {
+        long start = System.nanoTime();
+        OpeningBook openingBook = book;
+        if (openingBook != null) {
+            int bookMove = openingBook.choose(position, ThreadLocalRandom.current());
+            if (bookMove != Move.NONE) {
+                return new SearchResult(bookMove, 0, 0, 0, System.nanoTime() - start, List.of());
+            }
+        }
+        long deadline = limits.timeMillis() >= Long.MAX_VALUE / 1_000_000
+                ? Long.MAX_VALUE : start + limits.timeMillis() * 1_000_000;
+        Bitbases endgames = bitbases;
+        SharedState shared = new SharedState(start, limits.nodes(), deadline,
+                endgames != null ? endgames : Bitbases.installed());
+        stopRequested = false;
+        table.newSearch();
+
+        while (workers.size() < limits.threads()) {
+            workers.add(new Worker(workers.size()));
+        }
+        List<Thread> helpers = new ArrayList<>();
+        for (int i = 0; i < limits.threads(); i++) {
+            workers.get(i).prepare(position, shared);
+        }
+        for (int i = 1; i < limits.threads(); i++) {
+            Worker helper = workers.get(i);
+            Thread thread = new Thread(() -> helper.iterate(limits.depth(), null), "search-helper-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            helpers.add(thread);
+        }
+
+        Worker main = workers.get(0);
+        SearchResult result = main.iterate(limits.depth(), onIteration);
+        shared.stop = true;
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<ThreadStats> stats = new ArrayList<>();
+        long nodes = 0;
+        for (int i = 0; i < limits.threads(); i++) {
+            Worker worker = workers.get(i);
+            stats.add(new ThreadStats(i, worker.nodes, worker.completedDepth));
+            nodes += worker.nodes;
+            worker.game = null;
+        }
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), nodes,
+                System.nanoTime() - start, List.copyOf(stats));
+    }
+
+    /**
+     * Asks a running search to return as soon as possible. The search still
+     * finishes depth 1 so it always has a move to return.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * @param book the book to play from before searching, or null to always
+     *             search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * @return the book this engine plays from, or null if it has none
+     */
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    /**
+     * @param bitbases the endgame tables to score positions from, or null to use
+     *                 {@link Bitbases#installed}
+     */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /**
+     * @return the transposition table this engine searches with
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /*
+     * State every thread of one search reads: the limits and whether to stop
+     */
+    private static final class SharedState {
+        final long start;
+        final long nodeLimit;
+        final long deadline;
+        final Bitbases bitbases;
+        final AtomicLong nodes = new AtomicLong();
+        volatile boolean stop;
+        volatile boolean firstDepthDone;
+
+        SharedState(long start, long nodeLimit, long deadline, Bitbases bitbases) {
+            this.start = start;
+            this.nodeLimit = nodeLimit;
+            this.deadline = deadline;
+            this.bitbases = bitbases;
+        }
+    }
+
+    /*
+     * One searching thread. Thread 0 runs on the caller's thread and decides the
+     * result; the others are helpers that fill the shared table.
+     */
+    private final class Worker {
+        private final int id;
+        private final int[][] moveBuffers = new int[MAX_PLY + 1][Move.MAX_MOVES];
+        private final int[][] orderBuffers = new int[MAX_PLY + 1][Move.MAX_MOVES];
+        private final int[][] killers = new int[MAX_PLY + 1][2];
+        private final int[][] history = new int[2][64 * 64];
+
+        private SharedState shared;
+        private ChessGame game;
+        private long nodes;
+        private long flushedNodes;
+        private long otherNodes;
+        private int completedDepth;
+        private int rootBestMove;
+
+        Worker(int id) {
+            this.id = id;
+        }
+
+        void prepare(ChessGame position, SharedState shared) {
+            this.shared = shared;
+            game = new ChessGame();
+            game.setBoard(position.getBoard().copy());
+            game.setTeamTurn(position.getTeamTurn());
+            nodes = 0;
+            flushedNodes = 0;
+            otherNodes = 0;
+            completedDepth = 0;
+            for (int[] plyKillers : killers) {
+                plyKillers[0] = Move.NONE;
+                plyKillers[1] = Move.NONE;
+            }
+            for (int[] colorHistory : history) {
+                Arrays.fill(colorHistory, 0);
+            }
+        }
+
+        SearchResult iterate(int maxDepth, Consumer<SearchResult> onIteration) {
+            SearchResult result = new SearchResult(Move.NONE, 0, 0, 0, 0, List.of());
+            // odd helpers start a ply deeper, so threads spread over two depths
+            int firstDepth = Math.min(maxDepth, 1 + (id & 1));
+            for (int depth = firstDepth; depth <= maxDepth; depth++) {
+                rootBestMove = Move.NONE;
+                int score = negamax(depth, 0, -INFINITY, INFINITY);
+                if (shared.stop) {
+                    break;
+                }
+                completedDepth = depth;
+                if (id == 0) {
+                    shared.firstDepthDone = true;
+                }
+                result = new SearchResult(rootBestMove, score, depth, shared.nodes.get() + nodes - flushedNodes,
+                        System.nanoTime() - shared.start, List.of());
+                if (onIteration != null) {
+                    onIteration.accept(result);
+                }
+                // no moves, or a forced mate that deeper searches cannot improve
+                if (rootBestMove == Move.NONE || Math.abs(score) >= MATE_SCORE - depth) {
+                    break;
+                }
+            }
+            flushNodes();
+            return result;
+        }
+
+        private int negamax(int depth, int ply, int alpha, int beta) {
+            if (countNode()) {
+                return 0;
+            }
+            ChessGame.TeamColor turn = game.getTeamTurn();
+            if (ply > 0 && Long.bitCount(game.getBoard().getOccupancy()) <= shared.bitbases.maxPieces()) {
+                ChessGame.TheoreticalResult known = shared.bitbases.probe(game.getBoard(), turn);
+                if (known != null) {
+                    return switch (known) {
+                        case WIN -> KNOWN_WIN + Evaluation.evaluate(game.getBoard(), turn) - ply;
+                        case LOSS -> -KNOWN_WIN + Evaluation.evaluate(game.getBoard(), turn) + ply;
+                        case DRAW -> 0;
+                    };
+                }
+            }
+            if (depth <= 0) {
+                return quiesce(ply, alpha, beta);
+            }
+            if (ply >= MAX_PLY) {
+                return Evaluation.evaluate(game.getBoard(), turn);
+            }
+
+            long key = game.positionKey();
+            long entry = table.probe(key);
+            int tableMove = Move.NONE;
+            if (entry != 0) {
+                tableMove = TranspositionTable.move(entry);
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER && score >= beta
+                            || bound == TranspositionTable.UPPER && score <= alpha) {
+                        return score;
+                    }
+                }
+            }
+
+            int[] moves = moveBuffers[ply];
+            int count = game.legalMoves(moves);
+            if (count == 0) {
+                return game.isInCheck(turn) ? -MATE_SCORE + ply : 0;
+            }
+            scoreMoves(moves, count, ply, tableMove);
+
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = Move.NONE;
+            for (int i = 0; i < count; i++) {
+                int move = pickNext(moves, orderBuffers[ply], i, count);
+                game.doMove(move);
+                int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                game.undoMove();
+                if (shared.stop) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                    if (ply == 0) {
+                        rootBestMove = move;
+                    }
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            recordQuietCutoff(move, turn, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(best, ply), depth, bound);
+            return best;
+        }
+
+        private int quiesce(int ply, int alpha, int beta) {
+            ChessGame.TeamColor turn = game.getTeamTurn();
+            int standPat = Evaluation.evaluate(game.getBoard(), turn);
+            if (ply >= MAX_PLY || standPat >= beta) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+
+            int[] moves = moveBuffers[ply];
+            int count = MoveGenerator.legalCaptures(game.getBoard(), turn, moves);
+            scoreMoves(moves, count, ply, Move.NONE);
+            for (int i = 0; i < count; i++) {
+                int move = pickNext(moves, orderBuffers[ply], i, count);
+                game.doMove(move);
+                int score = countNode() ? 0 : -quiesce(ply + 1, -beta, -alpha);
+                game.undoMove();
+                if (shared.stop) {
+                    return 0;
+                }
+                if (score >= beta) {
+                    return score;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+            }
+            return alpha;
+        }
+
+        /*
+         * Counts a node, and checks the limits every CHECK_INTERVAL nodes or when
+         * this thread alone could have reached the node limit. Returns true once
+         * the search has to stop.
+         */
+        private boolean countNode() {
+            nodes++;
+            if ((nodes & (CHECK_INTERVAL - 1)) == 0 || nodes + otherNodes >= shared.nodeLimit) {
+                long total = flushNodes();
+                if (shared.firstDepthDone && (stopRequested || total >= shared.nodeLimit
+                        || System.nanoTime() >= shared.deadline)) {
+                    shared.stop = true;
+                }
+            }
+            return shared.stop;
+        }
+
+        private long flushNodes() {
+            long total = shared.nodes.addAndGet(nodes - flushedNodes);
+            flushedNodes = nodes;
+            otherNodes = total - nodes;
+            return total;
+        }
+
+        private void scoreMoves(int[] moves, int count, int ply, int tableMove) {
+            ChessBoard board = game.getBoard();
+            int[] scores = orderBuffers[ply];
+            int color = game.getTeamTurn().ordinal();
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                if (move == tableMove) {
+                    scores[i] = TABLE_MOVE_ORDER;
+                } else if (Move.isCapture(move)) {
+                    ChessPiece victim = board.getPiece(Move.to(move));
+                    ChessPiece attacker = board.getPiece(Move.from(move));
+                    scores[i] = CAPTURE_ORDER + Evaluation.pieceValue(victim.getPieceType()) * 16
+                            - Evaluation.pieceValue(attacker.getPieceType()) / 16;
+                } else if (Move.isPromotion(move)) {
+                    scores[i] = PROMOTION_ORDER + Evaluation.pieceValue(Move.promotion(move));
+                } else if (move == killers[ply][0]) {
+                    scores[i] = FIRST_KILLER_ORDER;
+                } else if (move == killers[ply][1]) {
+                    scores[i] = SECOND_KILLER_ORDER;
+                } else {
+                    scores[i] = history[color][Move.from(move) * 64 + Move.to(move)];
+                }
+            }
+        }
+
+        private void recordQuietCutoff(int move, ChessGame.TeamColor turn, int depth, int ply) {
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+            int[] colorHistory = history[turn.ordinal()];
+            int index = Move.from(move) * 64 + Move.to(move);
+            colorHistory[index] += depth * depth;
+            if (colorHistory[index] > HISTORY_LIMIT) {
+                // keep history below the killer scores, and let older cutoffs fade
+                for (int i = 0; i < colorHistory.length; i++) {
+                    colorHistory[i] /= 2;
+                }
+            }
+        }
+    }
+
+    /*
+     * Selection sort one step at a time: most nodes cut off after the first
+     * few moves, so sorting the whole list up front would be wasted.
+     */
+    private static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    /*
+     * Mate scores count plies from the root, but a table entry can be reached
+     * at any ply, so they are stored counting from the entry's own position.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        return score <= -MATE_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        return score <= -MATE_BOUND ? score + ply : score;
+    }
+}
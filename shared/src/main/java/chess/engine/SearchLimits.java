@@ -0,0 +1,59 @@
+package chess.engine;
+
+/**
+ * How far a search may go before it has to return a move, and how many
+ * threads it may use. The search stops at whichever limit it reaches first,
+ * and always finishes at least depth 1.
+ *
+ * @param depth      deepest iteration to search, in plies
+ * @param nodes      most positions to visit, counted across all threads
+ * @param timeMillis longest time to search, in milliseconds
+ * @param threads    number of threads searching, including the caller's
+ */
+public record SearchLimits(int depth, long nodes, long timeMillis, int threads) {
+
+    public SearchLimits {
+        if (depth < 1 || nodes < 1 || timeMillis < 1 || threads < 1) {
+            throw new IllegalArgumentException("Search limits must be positive");
+        }
+        depth = Math.min(depth, SearchEngine.MAX_PLY);
+    }
+
+    /**
+     * @return single threaded limits that only stop the search at the given depth
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE, 1);
+    }
+
+    /**
+     * @return single threaded limits that only stop the search after the given time
+     */
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(SearchEngine.MAX_PLY, Long.MAX_VALUE, timeMillis, 1);
+    }
+
+    /**
+     * @return single threaded limits that only stop the search after visiting
+     * the given number of positions
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(SearchEngine.MAX_PLY, nodes, Long.MAX_VALUE, 1);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, timeMillis, threads);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, timeMillis, threads);
+    }
+
+    public SearchLimits withTime(long timeMillis) {
+        return new SearchLimits(depth, nodes, timeMillis, threads);
+    }
+
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, nodes, timeMillis, threads);
+    }
+}
@@ -0,0 +1,72 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.Move;
+
+import java.util.List;
+
+/**
+ * The outcome of a search, or of one completed iteration of it
+ *
+ * @param bestMove     the best move found, encoded by {@link Move}, or
+ *                     {@link Move#NONE} if the side to move has no moves
+ * @param score        the score of the best move in centipawns for the side to
+ *                     move, or a mate score
+ * @param depth        the deepest iteration that finished, or 0 for a move
+ *                     from the opening book
+ * @param nodes        positions visited by all threads, including quiescence
+ *                     search
+ * @param elapsedNanos wall clock time taken
+ * @param threads      statistics for each thread, which are only filled in on
+ *                     the final result of a search
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos,
+                           List<ThreadStats> threads) {
+
+    /**
+     * @return the best move as a ChessMove, or null if there is none
+     */
+    public ChessMove chessMove() {
+        return bestMove == Move.NONE ? null : Move.toChessMove(bestMove);
+    }
+
+    /**
+     * @return true if the move came from the opening book without a search
+     */
+    public boolean isBookMove() {
+        return depth == 0 && bestMove != Move.NONE;
+    }
+
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @return true if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= SearchEngine.MATE_SCORE - SearchEngine.MAX_PLY;
+    }
+
+    /**
+     * @return plies until mate, positive if the side to move mates and negative
+     * if it is mated, or 0 if the score is not a mate
+     */
+    public int matePlies() {
+        if (!isMate()) {
+            return 0;
+        }
+        return score > 0 ? SearchEngine.MATE_SCORE - score : -(SearchEngine.MATE_SCORE + score);
+    }
+
+    @Override
+    public String toString() {
+        if (isBookMove()) {
+            return "book move " + Move.toString(bestMove);
+        }
+        String scoreText = isMate() ? "mate " + matePlies() : "cp " + score;
+        String moveText = bestMove == Move.NONE ? "none" : Move.toString(bestMove);
+        return String.format("depth %d %s move %s: %,d nodes in %,d ms (%,d nodes/s)",
+                depth, scoreText, moveText, nodes, elapsedNanos / 1_000_000, nodesPerSecond());
+    }
+}
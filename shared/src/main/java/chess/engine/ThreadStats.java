@@ -0,0 +1,11 @@
+package chess.engine;
+
+/**
+ * What one thread of a search did
+ *
+ * @param thread the thread's index, where 0 is the thread that called search
+ * @param nodes  positions the thread visited
+ * @param depth  the deepest iteration the thread finished
+ */
+public record ThreadStats(int thread, long nodes, int depth) {
+}
@@ -0,0 +1,224 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A hash table of search results keyed by position, shared by every thread
+ * of a search without locks.
+ * <p>
+ * Each slot holds two longs: the entry's data, and the position key XORed
+ * with that data. Two threads writing the same slot at once can leave a key
+ * from one write and data from the other. That slot then fails the
+ * {@code key ^ data} check on the next probe and is treated as empty, so a
+ * torn entry is never returned.
+ * <p>
+ * Each position maps to one slot. A new result replaces the slot's entry
+ * unless that entry is for another position, was stored during the current
+ * search, and was searched deeper. Calling {@link #newSearch} at the start of
+ * each search ages every existing entry this way at no cost.
+ * <p>
+ * Data layout: bits 0-16 best move, bits 17-23 depth, bits 24-25 bound,
+ * bits 26-31 generation, bits 32-47 score. The full key is kept, so a probe
+ * never matches a different position with the same slot.
+ * <p>
+ * One table can be shared by every engine in a process, see {@link #shared}.
+ */
+public class TranspositionTable {
+
+    /**
+     * Size of one entry in bytes
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * System property giving the size of the {@link #shared} table in MB
+     */
+    public static final String SHARED_SIZE_PROPERTY = "chess.hash.mb";
+
+    private static final int DEFAULT_SHARED_MB = 16;
+
+    /**
+     * The score is exact
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * The score is at least the stored value: the search failed high
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * The score is at most the stored value: the search failed low
+     */
+    public static final int UPPER = 3;
+
+    private static final int MOVE_MASK = (1 << 17) - 1;
+    private static final int DEPTH_SHIFT = 17;
+    private static final int DEPTH_MASK = 0x7F;
+    private static final int BOUND_SHIFT = 24;
+    private static final int GENERATION_SHIFT = 26;
+    private static final int GENERATION_MASK = 0x3F;
+    private static final int SCORE_SHIFT = 32;
+    private static final int HASHFULL_SAMPLE = 1000;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * @param entries number of entries, rounded down to a power of two
+     */
+    public TranspositionTable(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Table must have at least one entry");
+        }
+        int size = Integer.highestOneBit(entries);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Creates a table that uses at most the given amount of memory
+     *
+     * @param megabytes memory for the table's entries, at least 1
+     * @return a table with the largest power of two number of entries that fits
+     */
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long entries = (long) megabytes * 1024 * 1024 / ENTRY_BYTES;
+        return new TranspositionTable((int) Math.min(entries, 1 << 30));
+    }
+
+    /**
+     * Gets the table shared by every engine in this process. It is created on
+     * first use, sized by the {@value #SHARED_SIZE_PROPERTY} system property in
+     * MB, or 16 MB if the property is not set.
+     *
+     * @return the process wide table
+     */
+    public static TranspositionTable shared() {
+        return SharedHolder.TABLE;
+    }
+
+    private static final class SharedHolder {
+        static final TranspositionTable TABLE = ofMegabytes(Integer.getInteger(SHARED_SIZE_PROPERTY,
+                DEFAULT_SHARED_MB));
+    }
+
+    /**
+     * Starts a new generation. Entries from earlier generations are kept and
+     * still found, but are the first to be replaced.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position's Zobrist key
+     * @return the stored data, or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Stores a search result, replacing whatever was in the position's slot
+     *
+     * @param key   the position's Zobrist key
+     * @param move  the best move found, or {@link chess.Move#NONE}
+     * @param score the score, with mate scores relative to this position
+     * @param depth the depth searched
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        int currentGeneration = generation;
+        long existing = data[index];
+        if (existing != 0 && (keys[index] ^ existing) != key
+                && generation(existing) == currentGeneration && depth(existing) > depth) {
+            return;
+        }
+        long entry = (move & MOVE_MASK)
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) currentGeneration << GENERATION_SHIFT
+                | (long) (score & 0xFFFF) << SCORE_SHIFT;
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    /**
+     * Estimates how full the table is from a sample of its slots
+     *
+     * @return entries from the current generation per thousand slots
+     */
+    public int hashfull() {
+        int sample = Math.min(HASHFULL_SAMPLE, data.length);
+        int currentGeneration = generation;
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long entry = data[i];
+            if (entry != 0 && generation(entry) == currentGeneration) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @return the number of entries the table holds
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the table's memory use in bytes
+     */
+    public long sizeBytes() {
+        return (long) keys.length * ENTRY_BYTES;
+    }
+
+    /**
+     * @return the current generation, which counts searches modulo 64
+     */
+    public int generation() {
+        return generation;
+    }
+
+    public static int move(long entry) {
+        return (int) entry & MOVE_MASK;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+}
@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * What the lobby shows about a game, without its board
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName, Status status) {
+
+    public enum Status {
+        /** A seat is still open */
+        WAITING_FOR_PLAYERS,
+        /** Both seats are taken and the game is not over */
+        IN_PROGRESS,
+        FINISHED;
+
+        public static Status of(String whiteUsername, String blackUsername, boolean finished) {
+            if (finished) {
+                return FINISHED;
+            }
+            return whiteUsername == null || blackUsername == null ? WAITING_FOR_PLAYERS : IN_PROGRESS;
+        }
+    }
+
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                Status.of(game.whiteUsername(), game.blackUsername(), game.game().isFinished()));
+    }
+}
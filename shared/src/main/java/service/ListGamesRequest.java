@@ -0,0 +1,9 @@
+package service;
+
+/**
+ * Query parameters of GET /game, any of which may be null. {@code after} and
+ * {@code limit} page through the games in ID order, {@code status} is one of
+ * open, in-progress or finished, and {@code player} keeps only games the named
+ * user plays in.
+ */
+public record ListGamesRequest(String after, String limit, String status, String player) {}
@@ -1,6 +1,16 @@
 package service;
 
-import model.GameData;
+import model.GameSummary;
 import java.util.Collection;
 
-public record ListGamesResult(Collection<GameData> games) {}
\ No newline at end of file
+/**
+ * @param games the games on this page, in ID order
+ * @param next  the value of {@code after} that fetches the next page, or null
+ *              if this is the last one
+ */
+public record ListGamesResult(Collection<GameSummary> games, Integer next) {
+
+    public ListGamesResult(Collection<GameSummary> games) {
+        this(games, null);
+    }
+}
@@ -0,0 +1,211 @@
+package chess;
+
+import chess.engine.SearchEngine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passoff.chess.TestUtilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for {@link BitbaseGenerator} and probing the tables it builds.
+ */
+public class BitbaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Bitbases bitbases;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        BitbaseGenerator generator = new BitbaseGenerator(directory, ForkJoinPool.commonPool(), null);
+        bitbases = generator.generateAll(List.of("KQK", "KRK", "KPK", "KBK", "KNK"));
+    }
+
+    @Test
+    @DisplayName("Tables Built")
+    public void tablesBuilt() throws IOException {
+        Assertions.assertEquals(5, bitbases.size());
+        Assertions.assertEquals(3, bitbases.maxPieces());
+        Assertions.assertEquals(5, Bitbases.open(directory).size());
+        Assertions.assertEquals("KPK", bitbases.get("KPK").material());
+    }
+
+    @Test
+    @DisplayName("King and Pawn")
+    public void kingAndPawn() {
+        String opposition = """
+                | | |k| | | | | |
+                | | | | | | | | |
+                | | |K| | | | | |
+                | | |P| | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """;
+        Assertions.assertEquals(ChessGame.TheoreticalResult.WIN, probe(opposition, ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.TheoreticalResult.LOSS, probe(opposition, ChessGame.TeamColor.BLACK));
+
+        Assertions.assertEquals(ChessGame.TheoreticalResult.DRAW, probe("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |P| | | | | | | |
+                | |K| | | | | | |
+                """, ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Colors are Flipped for Black's Pieces")
+    public void flipped() {
+        String opposition = """
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | |k| | | | | |
+                | | | | | | | | |
+                | | |K| | | | | |
+                """;
+        Assertions.assertEquals(ChessGame.TheoreticalResult.WIN, probe(opposition, ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(ChessGame.TheoreticalResult.LOSS, probe(opposition, ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Mate and Stalemate")
+    public void mateAndStalemate() {
+        Assertions.assertEquals(ChessGame.TheoreticalResult.LOSS, probe("""
+                | | | | | | | |k|
+                | | | | | | |Q| |
+                | | | | | |K| | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.BLACK));
+
+        String stalemate = """
+                | | | | | | | |k|
+                | | | | | |K| | |
+                | | | | | | |Q| |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """;
+        Assertions.assertEquals(ChessGame.TheoreticalResult.DRAW, probe(stalemate, ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(ChessGame.TheoreticalResult.WIN, probe(stalemate, ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Minor Pieces Cannot Win")
+    public void minorPieces() {
+        Assertions.assertEquals(ChessGame.TheoreticalResult.DRAW, probe("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                | | | | | |K| | |
+                | | | | | | | | |
+                | | | |B| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Positions Without a Table")
+    public void notCovered() {
+        Assertions.assertNull(bitbases.probe(new ChessGame().getBoard(), ChessGame.TeamColor.WHITE));
+        Assertions.assertNull(probe("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                | | | | | |K| | |
+                | | | | | | | | |
+                | | | |B|N| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                """, ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Game Uses the Installed Tables")
+    public void installed() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | |R| | | | | | |
+                |K| | | | | | | |
+                """));
+        Bitbases.install(bitbases);
+        try {
+            Assertions.assertEquals(ChessGame.TheoreticalResult.WIN, game.theoreticalResult());
+            game.setTeamTurn(ChessGame.TeamColor.BLACK);
+            Assertions.assertEquals(ChessGame.TheoreticalResult.LOSS, game.theoreticalResult());
+            Assertions.assertNull(new ChessGame().theoreticalResult());
+        } finally {
+            Bitbases.install(null);
+        }
+    }
+
+    @Test
+    @DisplayName("Engine Scores Table Positions as Won")
+    public void engineUsesTables() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |Q| | |
+                |K| | | | | | | |
+                """));
+        SearchEngine engine = new SearchEngine(TranspositionTable.ofMegabytes(1));
+        engine.setBitbases(bitbases);
+        SearchResult result = engine.search(game, SearchLimits.depth(3));
+        Assertions.assertNotNull(result.chessMove());
+        Assertions.assertTrue(result.score() > 10_000, "Score " + result.score());
+        Assertions.assertFalse(result.isMate());
+
+        game.doMove(result.bestMove());
+        Assertions.assertEquals(ChessGame.TheoreticalResult.LOSS, bitbases.probe(game.getBoard(), game.getTeamTurn()));
+    }
+
+    @Test
+    @DisplayName("Invalid Input is Rejected")
+    public void invalid() {
+        BitbaseGenerator generator = new BitbaseGenerator(directory, ForkJoinPool.commonPool(), null);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.generate("KKQ"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> generator.generate("KQRBK"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Bitbase.of(ByteBuffer.wrap(new byte[16])));
+    }
+
+    private static ChessGame.TheoreticalResult probe(String boardText, ChessGame.TeamColor turn) {
+        return bitbases.probe(TestUtilities.loadBoard(boardText), turn);
+    }
+}
@@ -0,0 +1,91 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+/**
+ * Tests for reading and writing positions with {@link Fen}.
+ */
+public class FenTests {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b - - 3 17";
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        Assertions.assertEquals(Fen.START, Fen.format(new ChessGame()));
+        ChessGame game = Fen.parse(Fen.START);
+        Assertions.assertEquals(new ChessGame(), game);
+        Assertions.assertEquals(new ChessGame().positionKey(), game.positionKey());
+    }
+
+    @Test
+    @DisplayName("Round Trip")
+    public void roundTrip() {
+        ChessGame game = Fen.parse(KIWIPETE);
+        Assertions.assertEquals(KIWIPETE, Fen.format(game));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        Assertions.assertEquals(3, game.getHalfmoveClock());
+        Assertions.assertEquals(17, game.getFullmoveNumber());
+        Assertions.assertEquals(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |p| |p|p|q|p|b| |
+                |b|n| | |p|n|p| |
+                | | | |P|N| | | |
+                | |p| | |P| | | |
+                | | |N| | |Q| |p|
+                |P|P|P|B|B|P|P|P|
+                |R| | | |K| | |R|
+                """), game.getBoard());
+        Assertions.assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R",
+                Fen.formatBoard(Fen.parseBoard(KIWIPETE)));
+    }
+
+    @Test
+    @DisplayName("Castling and En Passant are Ignored")
+    public void ignoredFields() {
+        ChessGame game = Fen.parse("4k3/8/8/8/4P3/8/8/4K3 b KQkq e3 0 1");
+        Assertions.assertEquals("4k3/8/8/8/4P3/8/8/4K3 b - - 0 1", Fen.format(game));
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", Fen.format(Fen.parse("4k3/8/8/8/8/8/8/4K3")));
+    }
+
+    @Test
+    @DisplayName("Move Counters Follow the Game")
+    public void moveCounters() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b - - 1 1", Fen.format(game));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        Assertions.assertEquals("rnbqkbnr/pppp1ppp/8/4p3/8/5N2/PPPPPPPP/RNBQKB1R w - - 0 2", Fen.format(game));
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(5, 5), null));
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+
+        game.undoMove();
+        game.undoMove();
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b - - 1 1", Fen.format(game));
+    }
+
+    @Test
+    @DisplayName("Invalid Records are Rejected")
+    public void invalid() {
+        String[] invalid = {
+                "",
+                "8/8/8/8/8/8/8 w - - 0 1",
+                "8/8/8/8/8/8/8/8/8 w - - 0 1",
+                "9/8/8/8/8/8/8/8 w - - 0 1",
+                "8/8/8/8/8/8/8/7x w - - 0 1",
+                "ppppppppp/8/8/8/8/8/8/8 w - - 0 1",
+                "8/8/8/8/8/8/8/8 x - - 0 1",
+                "8/8/8/8/8/8/8/8 w KX - 0 1",
+                "8/8/8/8/8/8/8/8 w - e4 0 1",
+                "8/8/8/8/8/8/8/8 w - - a 1",
+                "8/8/8/8/8/8/8/8 w - - 0 0",
+                "8/8/8/8/8/8/8/8 w - - 0 1 extra",
+        };
+        for (String fen : invalid) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests for storing games with {@link GameCodec}.
+ */
+public class GameCodecTests {
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        Assertions.assertEquals(36, bytes.length);
+        Assertions.assertEquals(GameCodec.VERSION, bytes[0]);
+        ChessGame game = GameCodec.decode(bytes);
+        Assertions.assertEquals(new ChessGame(), game);
+        Assertions.assertEquals(new ChessGame().positionKey(), game.positionKey());
+        Assertions.assertFalse(game.isFinished());
+    }
+
+    @Test
+    @DisplayName("Round Trip")
+    public void roundTrip() {
+        String[] positions = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b - - 3 17",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4K3 w - - 99 300",
+                "8/8/8/8/8/8/8/8 w - - 0 1",
+        };
+        for (String fen : positions) {
+            ChessGame game = Fen.parse(fen);
+            Assertions.assertEquals(fen, Fen.format(GameCodec.decode(GameCodec.encode(game))));
+        }
+    }
+
+    @Test
+    @DisplayName("Finished Flag and Large Counters")
+    public void state() {
+        ChessGame game = new ChessGame();
+        game.setFinished(true);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.setHalfmoveClock(Integer.MAX_VALUE);
+        game.setFullmoveNumber(1 << 20);
+        byte[] bytes = GameCodec.encode(game);
+        Assertions.assertTrue(bytes.length <= GameCodec.MAX_BYTES);
+
+        ChessGame decoded = GameCodec.decode(bytes);
+        Assertions.assertTrue(decoded.isFinished());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        Assertions.assertEquals(Integer.MAX_VALUE, decoded.getHalfmoveClock());
+        Assertions.assertEquals(1 << 20, decoded.getFullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("Move Counters Stay Out of JSON")
+    public void countersNotInJson() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b - - 3 17");
+        String json = new Gson().toJson(game);
+        Assertions.assertFalse(json.contains("fullmoveNumber"), json);
+        Assertions.assertFalse(json.contains("halfmoveClock"), json);
+
+        // As for a game stored as JSON before the counters existed
+        ChessGame fromJson = new Gson().fromJson(json, ChessGame.class);
+        Assertions.assertEquals(game, fromJson);
+        Assertions.assertEquals(0, fromJson.getHalfmoveClock());
+        Assertions.assertEquals(1, fromJson.getFullmoveNumber());
+        Assertions.assertEquals(1, GameCodec.decode(GameCodec.encode(fromJson)).getFullmoveNumber());
+    }
+
+    @Test
+    @DisplayName("Invalid Records are Rejected")
+    public void invalid() {
+        byte[] valid = GameCodec.encode(new ChessGame());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[0]));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(Arrays.copyOf(valid, valid.length - 1)));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(Arrays.copyOf(valid, valid.length + 1)));
+
+        byte[] version = valid.clone();
+        version[0] = GameCodec.VERSION + 1;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(version));
+
+        byte[] piece = valid.clone();
+        piece[20] = (byte) 0xF0;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(piece));
+
+        byte[] flags = valid.clone();
+        flags[33] = 4;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(flags));
+    }
+}
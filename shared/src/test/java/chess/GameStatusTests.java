@@ -0,0 +1,52 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ChessGame#getStatus} and its cached result.
+ */
+public class GameStatusTests {
+
+    @Test
+    @DisplayName("Status Follows the Game")
+    public void statusFollowsGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        move(game, 2, 6, 3, 6);
+        move(game, 7, 5, 5, 5);
+        move(game, 2, 7, 4, 7);
+        Assertions.assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        move(game, 8, 4, 4, 8);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Board Changes Invalidate the Cached Status")
+    public void boardChangesInvalidateStatus() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        game.getBoard().addPiece(new ChessPosition(3, 4),
+                new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+
+        ChessBoard empty = new ChessBoard();
+        empty.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        empty.addPiece(new ChessPosition(3, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        empty.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.setBoard(empty);
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.getStatus());
+    }
+
+    private static void move(ChessGame game, int startRow, int startCol, int endRow, int endCol)
+            throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null));
+    }
+}
@@ -0,0 +1,123 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for the int move encoding, the move buffer API and doMove/undoMove.
+ */
+public class MoveTests {
+
+    @Test
+    @DisplayName("Encoding Round Trip")
+    public void encodingRoundTrip() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1),
+                ChessPiece.PieceType.KNIGHT);
+        int move = Move.encode(Bitboards.square(7, 2), Bitboards.square(8, 1), ChessPiece.PieceType.KNIGHT,
+                Move.CAPTURE);
+        Assertions.assertEquals(Bitboards.square(7, 2), Move.from(move));
+        Assertions.assertEquals(Bitboards.square(8, 1), Move.to(move));
+        Assertions.assertEquals(ChessPiece.PieceType.KNIGHT, Move.promotion(move));
+        Assertions.assertTrue(Move.isCapture(move));
+        Assertions.assertEquals(promotion, Move.toChessMove(move));
+        Assertions.assertEquals("b7a8n", Move.toString(move));
+
+        ChessMove push = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        int encoded = Move.fromChessMove(push, new ChessGame().getBoard());
+        Assertions.assertEquals(Move.DOUBLE_PUSH, encoded & Move.DOUBLE_PUSH);
+        Assertions.assertFalse(Move.isCapture(encoded));
+        Assertions.assertEquals(push, Move.toChessMove(encoded));
+    }
+
+    @Test
+    @DisplayName("Move Buffer Matches Valid Moves")
+    public void bufferMatchesValidMoves() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |P|p|p|p| |p|p|p|
+                | |b| | | |n|b|N|
+                |n|P| | | | | | |
+                |B|B|P| |P| | | |
+                |q| | | | |N| | |
+                |P|p| |P| | |P|P|
+                |R| | |Q| |R|K| |
+                """));
+
+        Collection<ChessMove> expected = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    expected.addAll(game.validMoves(new ChessPosition(row, col)));
+                }
+            }
+        }
+
+        int[] buffer = new int[Move.MAX_MOVES];
+        int count = game.legalMoves(buffer);
+        Set<ChessMove> actual = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            actual.add(Move.toChessMove(buffer[i]));
+            Assertions.assertEquals(buffer[i], Move.fromChessMove(Move.toChessMove(buffer[i]), game.getBoard()));
+        }
+        Assertions.assertEquals(expected.size(), count);
+        Assertions.assertEquals(new HashSet<>(expected), actual);
+    }
+
+    @Test
+    @DisplayName("Buffer Too Small For Set Up Position")
+    public void bufferTooSmall() {
+        ChessBoard board = new ChessBoard();
+        for (int i = 1; i <= 8; i++) {
+            for (ChessPosition position : List.of(new ChessPosition(1, i), new ChessPosition(8, i),
+                    new ChessPosition(i, 1), new ChessPosition(i, 8))) {
+                board.addPiece(position, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+            }
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        Assertions.assertEquals(288, game.legalMoves(new int[512]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> game.legalMoves(new int[Move.MAX_MOVES]));
+    }
+
+    @Test
+    @DisplayName("Undo Restores Every Position")
+    public void undoRestoresPositions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        // walk a different legal move at each ply until the game ends or runs long
+        int[] buffer = new int[Move.MAX_MOVES];
+        long[] keys = new long[40];
+        String[] boards = new String[40];
+        int played = 0;
+        for (; played < keys.length; played++) {
+            int count = game.legalMoves(buffer);
+            if (count == 0) {
+                break;
+            }
+            keys[played] = game.positionKey();
+            boards[played] = game.getBoard().toString();
+            game.doMove(buffer[played % count]);
+        }
+        Assertions.assertEquals(played + 1, game.undoDepth());
+
+        for (int ply = played - 1; ply >= 0; ply--) {
+            game.undoMove();
+            Assertions.assertEquals(keys[ply], game.positionKey());
+            Assertions.assertEquals(boards[ply], game.getBoard().toString());
+        }
+        game.undoMove();
+        Assertions.assertEquals(new ChessGame(), game);
+        Assertions.assertThrows(IllegalStateException.class, game::undoMove);
+    }
+}
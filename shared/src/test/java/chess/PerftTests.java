@@ -0,0 +1,144 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Move generation regression tests against the published counts for the
+ * standard perft positions. Castling and en passant are not part of this
+ * game's rules, so only counts that can be checked against the published
+ * tables are used: the starting position, where neither move occurs before
+ * depth 5, and shallow depths where the castling and en passant moves are
+ * leaves and the published breakdown says how many to subtract. Deeper runs
+ * only check that the ways of counting agree with each other.
+ */
+public class PerftTests {
+
+    /**
+     * Depth at which the parallel and hashed counts are compared with the
+     * single threaded one, past the depths with published counts
+     */
+    private static final int CROSS_CHECK_DEPTH = 3;
+
+    private static final String KIWIPETE = """
+            |r| | | |k| | |r|
+            |p| |p|p|q|p|b| |
+            |b|n| | |p|n|p| |
+            | | | |P|N| | | |
+            | |p| | |P| | | |
+            | | |N| | |Q| |p|
+            |P|P|P|B|B|P|P|P|
+            |R| | | |K| | |R|
+            """;
+
+    private static final String ENDGAME = """
+            | | | | | | | | |
+            | | |p| | | | | |
+            | | | |p| | | | |
+            |K|P| | | | | |r|
+            | |R| | | |p| |k|
+            | | | | | | | | |
+            | | | | |P| |P| |
+            | | | | | | | | |
+            """;
+
+    private static final String PROMOTIONS = """
+            |r| | | |k| | |r|
+            |P|p|p|p| |p|p|p|
+            | |b| | | |n|b|N|
+            |n|P| | | | | | |
+            |B|B|P| |P| | | |
+            |q| | | | |N| | |
+            |P|p| |P| | |P|P|
+            |R| | |Q| |R|K| |
+            """;
+
+    private static final String MIDDLEGAME = """
+            |r|n|b|q| |k| |r|
+            |p|p| |P|b|p|p|p|
+            | | |p| | | | | |
+            | | | | | | | | |
+            | | |B| | | | | |
+            | | | | | | | | |
+            |P|P|P| |N|n|P|P|
+            |R|N|B|Q|K| | |R|
+            """;
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        assertPerft(new ChessGame(), new long[]{20, 400, 8902}, new long[]{20, 400, 8902, 197281});
+    }
+
+    @Test
+    @DisplayName("Kiwipete")
+    public void kiwipete() {
+        // 48 published, less 2 castling moves
+        assertPerft(load(KIWIPETE), new long[]{46}, new long[]{46});
+    }
+
+    @Test
+    @DisplayName("Rook and Pawn Endgame")
+    public void endgame() {
+        // 2812 published at depth 3, less 2 en passant captures
+        assertPerft(load(ENDGAME), new long[]{14, 191, 2810}, new long[]{14, 191, 2810});
+    }
+
+    @Test
+    @DisplayName("Promotions")
+    public void promotions() {
+        // 264 published at depth 2, less 6 castling moves
+        assertPerft(load(PROMOTIONS), new long[]{6, 258}, new long[]{6, 258});
+    }
+
+    @Test
+    @DisplayName("Middlegame")
+    public void middlegame() {
+        // 44 published, less 1 castling move
+        assertPerft(load(MIDDLEGAME), new long[]{43}, new long[]{43});
+    }
+
+    @Test
+    @DisplayName("Divide Matches Each Root Move")
+    public void divide() {
+        ChessGame game = load(KIWIPETE);
+        Perft.Divide divide = Perft.divide(game, 3, ForkJoinPool.commonPool(), PerftTable.ofMegabytes(1));
+        Assertions.assertEquals(46, divide.moves().size());
+        Assertions.assertEquals(Perft.perftInternal(game, 3), divide.result().nodes());
+        for (Perft.RootMove root : divide.moves()) {
+            game.doMove(root.move());
+            Assertions.assertEquals(Perft.perftInternal(game, 2), root.nodes(), "Wrong count for " + root);
+            game.undoMove();
+        }
+    }
+
+    private static ChessGame load(String boardText) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        return game;
+    }
+
+    private static void assertPerft(ChessGame game, long[] publicCounts, long[] internalCounts) {
+        String before = game.getBoard().toString();
+        for (int depth = 1; depth <= publicCounts.length; depth++) {
+            Assertions.assertEquals(publicCounts[depth - 1], Perft.perft(game, depth),
+                    "Wrong node count at depth " + depth);
+        }
+        for (int depth = 1; depth <= internalCounts.length; depth++) {
+            Assertions.assertEquals(internalCounts[depth - 1], Perft.perftInternal(game, depth),
+                    "Wrong node count at depth " + depth);
+        }
+        int depth = Math.max(internalCounts.length, CROSS_CHECK_DEPTH);
+        long nodes = Perft.perftInternal(game, depth);
+        Perft.Divide parallel = Perft.divide(game, depth, ForkJoinPool.commonPool(), null);
+        Perft.Divide hashed = Perft.divide(game, depth, ForkJoinPool.commonPool(), PerftTable.ofMegabytes(4));
+        Assertions.assertEquals(nodes, parallel.result().nodes(), "Wrong parallel node count");
+        Assertions.assertEquals(nodes, hashed.result().nodes(), "Wrong hashed node count");
+        Assertions.assertEquals(parallel.moves(), hashed.moves());
+        Assertions.assertEquals(before, game.getBoard().toString(), "Perft changed the board");
+    }
+}
@@ -0,0 +1,58 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the incrementally updated Zobrist key matches a key computed
+ * from scratch, and that it identifies positions rather than move orders.
+ */
+public class PositionKeyTests {
+
+    @Test
+    @DisplayName("Transpositions Share a Key")
+    public void transpositionsShareKey() throws InvalidMoveException {
+        ChessGame first = play("g1f3", "g8f6", "b1c3", "b8c6");
+        ChessGame second = play("b1c3", "b8c6", "g1f3", "g8f6");
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.positionKey(), second.positionKey());
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("Side to Move Changes the Key")
+    public void sideToMoveChangesKey() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals(white.getBoard().positionKey(), black.getBoard().positionKey());
+        Assertions.assertNotEquals(white.positionKey(), black.positionKey());
+    }
+
+    @Test
+    @DisplayName("Incremental Key Matches Rebuilt Key")
+    public void incrementalKeyMatchesRebuilt() throws InvalidMoveException {
+        ChessGame game = play("e2e4", "d7d5", "e4d5", "d8d5", "b1c3", "d5a5");
+        ChessBoard copy = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                copy.addPiece(position, game.getBoard().getPiece(position));
+            }
+        }
+        Assertions.assertEquals(copy, game.getBoard());
+        Assertions.assertEquals(copy.positionKey(), game.getBoard().positionKey());
+        Assertions.assertNotEquals(new ChessGame().positionKey(), game.positionKey());
+    }
+
+    private static ChessGame play(String... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            ChessPosition start = new ChessPosition(move.charAt(1) - '0', move.charAt(0) - 'a' + 1);
+            ChessPosition end = new ChessPosition(move.charAt(3) - '0', move.charAt(2) - 'a' + 1);
+            game.makeMove(new ChessMove(start, end, null));
+        }
+        return game;
+    }
+}
@@ -0,0 +1,69 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Move;
+import chess.PieceSquareTables;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class EvaluationTests {
+
+    @Test
+    @DisplayName("Starting Position is Level")
+    public void startingPositionIsLevel() {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(0, Evaluation.evaluate(game.getBoard(), ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(PieceSquareTables.maxPhase(), game.getBoard().getPhase());
+    }
+
+    @Test
+    @DisplayName("Scores are Symmetric")
+    public void symmetric() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        ChessBoard mirrored = new ChessBoard();
+        mirrored.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        mirrored.addPiece(new ChessPosition(5, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        mirrored.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+
+        int score = Evaluation.evaluate(board, ChessGame.TeamColor.WHITE);
+        Assertions.assertTrue(score > 0);
+        Assertions.assertEquals(score, Evaluation.evaluate(mirrored, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Incremental Totals Match a Rebuild")
+    public void incrementalMatchesRebuild() {
+        ChessGame game = new ChessGame();
+        int[] moves = new int[Move.MAX_MOVES];
+        for (int ply = 0; ply < 60; ply++) {
+            int count = game.legalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            game.doMove(moves[(ply * 7) % count]);
+
+            ChessBoard rebuilt = new ChessBoard();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition position = new ChessPosition(row, col);
+                    rebuilt.addPiece(position, game.getBoard().getPiece(position));
+                }
+            }
+            Assertions.assertEquals(rebuilt.getMidgameScore(), game.getBoard().getMidgameScore());
+            Assertions.assertEquals(rebuilt.getEndgameScore(), game.getBoard().getEndgameScore());
+            Assertions.assertEquals(rebuilt.getPhase(), game.getBoard().getPhase());
+        }
+        while (game.undoDepth() > 0) {
+            game.undoMove();
+        }
+        Assertions.assertEquals(0, Evaluation.evaluate(game.getBoard(), ChessGame.TeamColor.BLACK));
+    }
+}
@@ -0,0 +1,155 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class OpeningBookTests {
+
+    private static final String PGN = """
+            [Event "Casual"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 (2... d6 3. d4) 3. Bb5 a6 $1 4. Ba4 Nf6 1-0
+
+            [Event "Casual"]
+            [Result "0-1"]
+
+            1.e4 c5 2.Nf3 d6 3.d4 cxd4 4.Nxd4 Nf6 5.Nc3 a6 0-1
+            """;
+
+    private static final String MOVE_LIST = """
+            # coordinate and algebraic notation both work
+            e2e4 e7e5 g1f3 b8c6
+            d4 d5 c4 e6
+            """;
+
+    @Test
+    @DisplayName("Build and Probe")
+    public void buildAndProbe(@TempDir Path directory) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        Assertions.assertEquals(2, builder.addPgn(new StringReader(PGN)));
+        Assertions.assertEquals(2, builder.addMoveList(new StringReader(MOVE_LIST)));
+        Assertions.assertEquals(4, builder.games());
+
+        Path path = directory.resolve("book.bin");
+        builder.write(path);
+        OpeningBook book = OpeningBook.open(path);
+
+        List<OpeningBook.Entry> entries = book.probe(new ChessGame());
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertEquals("e2e4", Move.toString(entries.get(0).move()));
+        Assertions.assertEquals(3, entries.get(0).weight());
+        Assertions.assertEquals("d2d4", Move.toString(entries.get(1).move()));
+        Assertions.assertEquals(1, entries.get(1).weight());
+
+        ChessGame game = new ChessGame();
+        int[] moves = new int[Move.MAX_MOVES];
+        game.doMove(find(game, moves, "e2e4"));
+        entries = book.probe(game);
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertEquals("e7e5", Move.toString(entries.get(0).move()));
+        Assertions.assertEquals(2, entries.get(0).weight());
+
+        game.doMove(find(game, moves, "a7a6"));
+        Assertions.assertTrue(book.probe(game).isEmpty());
+        Assertions.assertEquals(Move.NONE, book.choose(game, new SplittableRandom(1)));
+    }
+
+    @Test
+    @DisplayName("Variations and Illegal Moves are Skipped")
+    public void skipped() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        builder.addPgn(new StringReader("1. e4 (1. d4 d5) e5 2. Ke3 Nc6 *"));
+        Assertions.assertEquals(2, builder.positions());
+        OpeningBook book = OpeningBook.of(builder.build());
+        Assertions.assertEquals(2, book.size());
+        Assertions.assertEquals("e2e4", Move.toString(book.probe(new ChessGame()).get(0).move()));
+    }
+
+    @Test
+    @DisplayName("Ply Limit")
+    public void plyLimit() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2);
+        builder.addMoveList(new StringReader("e4 e5 Nf3 Nc6"));
+        Assertions.assertEquals(2, OpeningBook.of(builder.build()).size());
+    }
+
+    @Test
+    @DisplayName("Engine Plays Book Moves Without Searching")
+    public void engineUsesBook() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        builder.addMoveList(new StringReader("c4 e5"));
+        SearchEngine engine = new SearchEngine(TranspositionTable.ofMegabytes(1));
+        engine.setOpeningBook(OpeningBook.of(builder.build()));
+
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.depth(4));
+        Assertions.assertTrue(result.isBookMove());
+        Assertions.assertEquals("c2c4", Move.toString(result.bestMove()));
+        Assertions.assertEquals(0, result.nodes());
+
+        ChessGame game = new ChessGame();
+        game.doMove(find(game, new int[Move.MAX_MOVES], "e2e4"));
+        result = engine.search(game, SearchLimits.depth(2));
+        Assertions.assertFalse(result.isBookMove());
+        Assertions.assertTrue(result.nodes() > 0);
+    }
+
+    @Test
+    @DisplayName("Books Not Written by the Builder")
+    public void foreignBook() {
+        ChessGame game = new ChessGame();
+        int[] moves = new int[Move.MAX_MOVES];
+        int e4 = find(game, moves, "e2e4");
+        int d4 = find(game, moves, "d2d4");
+
+        // Lightest first, so the probe has to sort them
+        OpeningBook book = OpeningBook.of(book(game.positionKey(), new int[]{d4, 1}, new int[]{e4, 5}));
+        List<OpeningBook.Entry> entries = book.probe(game);
+        Assertions.assertEquals("e2e4", Move.toString(entries.get(0).move()));
+        Assertions.assertEquals("d2d4", Move.toString(entries.get(1).move()));
+
+        // Every weight zero
+        book = OpeningBook.of(book(game.positionKey(), new int[]{d4, 0}, new int[]{e4, 0}));
+        Assertions.assertEquals("d2d4", Move.toString(book.choose(game, new SplittableRandom(1))));
+    }
+
+    @Test
+    @DisplayName("Invalid Files are Rejected")
+    public void invalidFile() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> OpeningBook.of(ByteBuffer.wrap(new byte[16])));
+    }
+
+    /*
+     * A book file holding one position's moves, each given as {move, weight}
+     */
+    private static ByteBuffer book(long key, int[]... entries) {
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + entries.length * OpeningBook.ENTRY_BYTES);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(entries.length);
+        for (int[] entry : entries) {
+            buffer.putLong(key).putShort((short) (entry[0] & OpeningBook.MOVE_MASK)).putShort((short) entry[1]);
+        }
+        return buffer.flip();
+    }
+
+    private static int find(ChessGame game, int[] moves, String text) {
+        int count = game.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        throw new AssertionError("No move " + text);
+    }
+}
@@ -0,0 +1,128 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+public class SearchEngineTests {
+
+    @Test
+    @DisplayName("Finds Mate in One")
+    public void findsMateInOne() {
+        ChessGame game = load("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                |R| | | | | |K| |
+                """, ChessGame.TeamColor.WHITE);
+        String before = game.getBoard().toString();
+
+        SearchResult result = new SearchEngine().search(game, SearchLimits.depth(4));
+        Assertions.assertTrue(result.depth() >= 1 && result.depth() <= 4, "Reached depth " + result.depth());
+        Assertions.assertTrue(result.nodes() > 0);
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.chessMove());
+        Assertions.assertTrue(result.isMate());
+        Assertions.assertEquals(1, result.matePlies());
+        Assertions.assertEquals(before, game.getBoard().toString(), "Search changed the game");
+    }
+
+    @Test
+    @DisplayName("Takes a Hanging Queen")
+    public void takesHangingQueen() {
+        ChessGame game = load("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |q| | | | |
+                | | | | | |N| | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """, ChessGame.TeamColor.WHITE);
+
+        SearchResult result = new SearchEngine().search(game, SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(3, 6), new ChessPosition(4, 4), null),
+                result.chessMove());
+        Assertions.assertTrue(result.score() > 0);
+    }
+
+    @Test
+    @DisplayName("Reports No Move When Mated")
+    public void noMoveWhenMated() {
+        ChessGame game = load("""
+                | | | | |R| |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                | | | | | | |K| |
+                """, ChessGame.TeamColor.BLACK);
+
+        SearchResult result = new SearchEngine().search(game, SearchLimits.depth(3));
+        Assertions.assertNull(result.chessMove());
+        Assertions.assertEquals(-SearchEngine.MATE_SCORE, result.score());
+    }
+
+    @Test
+    @DisplayName("Stops at the Node Budget")
+    public void stopsAtNodeBudget() {
+        SearchResult result = new SearchEngine().search(new ChessGame(), SearchLimits.nodes(20_000));
+        Assertions.assertNotNull(result.chessMove());
+        Assertions.assertTrue(result.depth() >= 1);
+        Assertions.assertTrue(result.nodes() <= 20_000 + 1, "Searched " + result.nodes() + " nodes");
+    }
+
+    @Test
+    @DisplayName("Stops at the Time Budget")
+    public void stopsAtTimeBudget() {
+        SearchResult result = new SearchEngine().search(new ChessGame(), SearchLimits.time(200));
+        Assertions.assertNotNull(result.chessMove());
+        Assertions.assertTrue(result.depth() >= 1);
+        Assertions.assertTrue(result.elapsedNanos() < 1_000_000_000L, "Took " + result.elapsedNanos() + " ns");
+    }
+
+    @Test
+    @DisplayName("Parallel Search Reports Every Thread")
+    public void parallelSearch() {
+        ChessGame game = load("""
+                | | | | | | |k| |
+                | | | | | |p|p|p|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | |P|P|P|
+                |R| | | | | |K| |
+                """, ChessGame.TeamColor.WHITE);
+
+        SearchResult result = new SearchEngine().search(game, SearchLimits.depth(5).withThreads(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.chessMove());
+        Assertions.assertEquals(4, result.threads().size());
+        Assertions.assertEquals(result.nodes(), result.threads().stream().mapToLong(ThreadStats::nodes).sum());
+
+        SearchResult timed = new SearchEngine().search(new ChessGame(), SearchLimits.time(200).withThreads(4));
+        Assertions.assertNotNull(timed.chessMove());
+        Assertions.assertEquals(4, timed.threads().size());
+        Assertions.assertEquals(timed.nodes(), timed.threads().stream().mapToLong(ThreadStats::nodes).sum());
+        Assertions.assertTrue(timed.threads().stream().allMatch(stats -> stats.nodes() > 0));
+    }
+
+    private static ChessGame load(String boardText, ChessGame.TeamColor turn) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+}
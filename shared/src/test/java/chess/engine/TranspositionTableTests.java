@@ -0,0 +1,65 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Move;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Stores and Finds Entries")
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1024);
+        long key = new ChessGame().positionKey();
+        int move = Move.encode(12, 28, null, Move.DOUBLE_PUSH);
+        table.store(key, move, -SearchEngine.MATE_SCORE + 3, 9, TranspositionTable.LOWER);
+
+        long entry = table.probe(key);
+        Assertions.assertEquals(move, TranspositionTable.move(entry));
+        Assertions.assertEquals(-SearchEngine.MATE_SCORE + 3, TranspositionTable.score(entry));
+        Assertions.assertEquals(9, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertEquals(0, table.probe(key + 1024), "Found an entry for a different position");
+    }
+
+    @Test
+    @DisplayName("Deeper Entries Survive Until the Next Search")
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(16);
+        long first = 5;
+        long second = 5 + 16;
+        table.store(first, Move.NONE, 10, 8, TranspositionTable.EXACT);
+        table.store(second, Move.NONE, 20, 2, TranspositionTable.EXACT);
+        Assertions.assertNotEquals(0, table.probe(first));
+        Assertions.assertEquals(0, table.probe(second));
+
+        table.newSearch();
+        table.store(second, Move.NONE, 20, 2, TranspositionTable.EXACT);
+        Assertions.assertEquals(0, table.probe(first));
+        Assertions.assertEquals(20, TranspositionTable.score(table.probe(second)));
+    }
+
+    @Test
+    @DisplayName("Sizing and Hashfull")
+    public void sizingAndHashfull() {
+        TranspositionTable table = TranspositionTable.ofMegabytes(1);
+        Assertions.assertEquals(1024 * 1024, table.sizeBytes());
+        Assertions.assertEquals(0, table.hashfull());
+
+        for (long key = 0; key < 500; key++) {
+            table.store(key, Move.NONE, 0, 1, TranspositionTable.EXACT);
+        }
+        Assertions.assertEquals(500, table.hashfull());
+        table.newSearch();
+        Assertions.assertEquals(0, table.hashfull());
+    }
+
+    @Test
+    @DisplayName("Shared Between Engines")
+    public void sharedTable() {
+        Assertions.assertSame(TranspositionTable.shared(), new SearchEngine().getTable());
+        Assertions.assertSame(TranspositionTable.shared(), new SearchEngine().getTable());
+    }
+}